@@ -0,0 +1,220 @@
+package com.codingtracker.benchmark;
+
+import com.codingtracker.crawler.CrawlScheduler;
+import com.codingtracker.crawler.HttpUtil;
+import com.codingtracker.init.ExtOjLinkDataLoader;
+import com.codingtracker.model.ExtOjLink;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserOJ;
+import com.codingtracker.repository.ProblemTagRepository.ProblemRow;
+import com.codingtracker.service.ProblemUpsertService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 基准测试的公共装配：用录制的响应样本回放 HTTP，用固定的题目ID代替数据库写入，
+ * 使爬虫的 userTryProblems 只剩解析、结果映射和 UserTryProblem 构造这几段热点代码
+ */
+final class CrawlerFixtures {
+
+    static final String HANDLE = "bench_user";
+
+    static final Map<OJPlatform, ExtOjLink> LINKS = new EnumMap<>(OJPlatform.class);
+
+    static {
+        LINKS.put(OJPlatform.CODEFORCES, link(OJPlatform.CODEFORCES,
+                "https://codeforces.com/api/user.status?handle=%s",
+                "https://codeforces.com/problemset/problem/%s/%s"));
+        LINKS.put(OJPlatform.LUOGU, link(OJPlatform.LUOGU,
+                "https://www.luogu.com.cn/record/list?user=%s&page=%d&_contentOnly=1",
+                "https://www.luogu.com.cn/problem/%s"));
+        LINKS.put(OJPlatform.LEETCODE, link(OJPlatform.LEETCODE,
+                "https://leetcode.cn/graphql/",
+                "https://leetcode.cn/problems/%s/"));
+        LINKS.put(OJPlatform.HDU, link(OJPlatform.HDU,
+                "https://acm.hdu.edu.cn/status.php?user=%s",
+                "https://acm.hdu.edu.cn/showproblem.php?pid=%s"));
+        LINKS.put(OJPlatform.POJ, link(OJPlatform.POJ,
+                "http://poj.org/status?user_id=%s",
+                "http://poj.org/problem?id=%s"));
+    }
+
+    private CrawlerFixtures() {
+    }
+
+    /**
+     * 读取 classpath 下 fixtures 目录中的样本
+     */
+    static byte[] load(String name) {
+        try (InputStream in = CrawlerFixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("缺少样本文件: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 只有一个指定平台账号的用户，没有水位线（全量解析）
+     */
+    static User user(OJPlatform platform) {
+        User user = new User();
+        user.setId(1);
+        user.setUsername(HANDLE);
+        UserOJ account = new UserOJ();
+        account.setId(1);
+        account.setUser(user);
+        account.setPlatform(platform);
+        account.setAccountName(HANDLE);
+        user.setOjAccounts(new ArrayList<>(List.of(account)));
+        return user;
+    }
+
+    /**
+     * 构造爬虫并注入回放用的依赖（爬虫使用字段注入）
+     */
+    static <T> T crawler(T crawler, ReplayHttpUtil http) {
+        inject(crawler, "httpUtil", http);
+        inject(crawler, "extOjLinkDataLoader", new StaticLinkLoader());
+        inject(crawler, "problemUpsertService", new FixedIdUpsertService());
+        inject(crawler, "crawlScheduler", new CrawlScheduler(new StandardEnvironment(), 4, 0, false));
+        return crawler;
+    }
+
+    private static void inject(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new IllegalStateException(target.getClass().getSimpleName() + " 没有字段 " + name);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    private static ExtOjLink link(OJPlatform platform, String userInfoLink, String problemLink) {
+        return ExtOjLink.builder()
+                .oj(platform)
+                .userInfoLink(userInfoLink)
+                .problemLink(problemLink)
+                .authToken("")
+                .build();
+    }
+
+    /**
+     * 按 URL 回放录制的响应，未录制的 URL 返回默认响应（通常是“没有更多数据”）
+     */
+    static final class ReplayHttpUtil extends HttpUtil {
+
+        private final Map<String, byte[]> responses = new HashMap<>();
+        private final byte[] fallback;
+
+        ReplayHttpUtil(byte[] fallback) {
+            super(new SimpleMeterRegistry());
+            this.fallback = fallback;
+        }
+
+        ReplayHttpUtil respond(String url, byte[] body) {
+            responses.put(url, body);
+            return this;
+        }
+
+        private byte[] body(String url) {
+            return responses.getOrDefault(url, fallback);
+        }
+
+        @Override
+        public String readURL(String urlString, Map<String, String> cookies) {
+            return new String(body(urlString), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Document readJsoupURL(String urlString) {
+            return readJsoupURL(urlString, null);
+        }
+
+        @Override
+        public Document readJsoupURL(String urlString, Map<String, String> cookies) {
+            try {
+                return Jsoup.parse(new ByteArrayInputStream(body(urlString)), null, urlString);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public <T> T readURLStream(String urlString, Map<String, String> cookies, BodyReader<T> reader)
+                throws IOException {
+            return reader.read(new ByteArrayInputStream(body(urlString)));
+        }
+
+        @Override
+        public <T> T postURLStream(String urlString, String postData, Map<String, String> headers,
+                BodyReader<T> reader) throws IOException {
+            return reader.read(new ByteArrayInputStream(body(urlString)));
+        }
+    }
+
+    /**
+     * 固定返回预设的平台链接配置
+     */
+    static final class StaticLinkLoader extends ExtOjLinkDataLoader {
+
+        StaticLinkLoader() {
+            super(null, null, null);
+        }
+
+        @Override
+        public Optional<ExtOjLink> find(OJPlatform platform) {
+            return Optional.ofNullable(LINKS.get(platform));
+        }
+    }
+
+    /**
+     * 不访问数据库，按题号哈希分配稳定的题目ID
+     */
+    static final class FixedIdUpsertService extends ProblemUpsertService {
+
+        FixedIdUpsertService() {
+            super(null, null);
+        }
+
+        @Override
+        public Map<String, Long> upsert(OJPlatform ojName, Collection<ProblemRow> rows) {
+            Map<String, Long> ids = new HashMap<>();
+            rows.forEach(row -> ids.put(row.pid(), idOf(row.pid())));
+            return ids;
+        }
+
+        @Override
+        public Map<String, Long> resolve(OJPlatform ojName, Collection<String> pids,
+                Function<String, ProblemRow> fetcher) {
+            Map<String, Long> ids = new HashMap<>();
+            pids.forEach(pid -> ids.put(pid, idOf(pid)));
+            return ids;
+        }
+
+        private static long idOf(String pid) {
+            return (pid.hashCode() & 0x7fffffffL) + 1;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.codingtracker.benchmark;
+
+import com.codingtracker.benchmark.CrawlerFixtures.ReplayHttpUtil;
+import com.codingtracker.crawler.CFCrawler;
+import com.codingtracker.crawler.CFSubmissionParser;
+import com.codingtracker.crawler.HDUCrawler;
+import com.codingtracker.crawler.LeetCodeCrawler;
+import com.codingtracker.crawler.LeetCodeProgressParser;
+import com.codingtracker.crawler.LuoguCrawler;
+import com.codingtracker.crawler.POJCrawler;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各平台爬虫解析录制样本的吞吐量：*Crawler 基准走完整的 userTryProblems
+ * （解析、结果映射、UserTryProblem 构造），*Parser 基准只测流式 JSON 解析本身。
+ * 样本规模：Codeforces 1000 条提交，洛谷 500 条记录，力扣 500 道题，HDU / POJ 各 300 行状态表
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrawlerParseBenchmark {
+
+    private byte[] cfStatus;
+    private byte[] leetcodeProgress;
+
+    private CFCrawler cfCrawler;
+    private LuoguCrawler luoguCrawler;
+    private LeetCodeCrawler leetCodeCrawler;
+    private HDUCrawler hduCrawler;
+    private POJCrawler pojCrawler;
+
+    private User cfUser;
+    private User luoguUser;
+    private User leetcodeUser;
+    private User hduUser;
+    private User pojUser;
+
+    @Setup
+    public void setup() {
+        cfStatus = CrawlerFixtures.load("cf-user-status.json");
+        leetcodeProgress = CrawlerFixtures.load("leetcode-progress.json");
+
+        cfCrawler = CrawlerFixtures.crawler(new CFCrawler(),
+                new ReplayHttpUtil(bytes("{\"status\":\"OK\",\"result\":[]}"))
+                        .respond(url(OJPlatform.CODEFORCES), cfStatus));
+        // 洛谷按页拉取直到空页，只录制第 1 页
+        luoguCrawler = CrawlerFixtures.crawler(new LuoguCrawler(),
+                new ReplayHttpUtil(bytes("{\"code\":200,\"currentData\":{\"records\":{\"result\":[]}}}"))
+                        .respond(url(OJPlatform.LUOGU, 1), CrawlerFixtures.load("luogu-records.json")));
+        leetCodeCrawler = CrawlerFixtures.crawler(new LeetCodeCrawler(),
+                new ReplayHttpUtil(leetcodeProgress));
+        hduCrawler = CrawlerFixtures.crawler(new HDUCrawler(),
+                new ReplayHttpUtil(CrawlerFixtures.load("hdu-status.html")));
+        pojCrawler = CrawlerFixtures.crawler(new POJCrawler(),
+                new ReplayHttpUtil(CrawlerFixtures.load("poj-status.html")));
+
+        cfUser = CrawlerFixtures.user(OJPlatform.CODEFORCES);
+        luoguUser = CrawlerFixtures.user(OJPlatform.LUOGU);
+        leetcodeUser = CrawlerFixtures.user(OJPlatform.LEETCODE);
+        hduUser = CrawlerFixtures.user(OJPlatform.HDU);
+        pojUser = CrawlerFixtures.user(OJPlatform.POJ);
+
+        // 样本或装配出错时爬虫只会返回空列表，提前失败以免测到空跑
+        requireNonEmpty("Codeforces", cfCrawler.userTryProblems(cfUser));
+        requireNonEmpty("Luogu", luoguCrawler.userTryProblems(luoguUser));
+        requireNonEmpty("LeetCode", leetCodeCrawler.userTryProblems(leetcodeUser));
+        requireNonEmpty("HDU", hduCrawler.userTryProblems(hduUser));
+        requireNonEmpty("POJ", pojCrawler.userTryProblems(pojUser));
+    }
+
+    @Benchmark
+    public List<UserTryProblem> codeforcesCrawler() {
+        return cfCrawler.userTryProblems(cfUser);
+    }
+
+    @Benchmark
+    public CFSubmissionParser.Page codeforcesParser(Blackhole bh) throws IOException {
+        return CFSubmissionParser.parse(new ByteArrayInputStream(cfStatus), -1, bh::consume);
+    }
+
+    @Benchmark
+    public List<UserTryProblem> luoguCrawler() {
+        return luoguCrawler.userTryProblems(luoguUser);
+    }
+
+    @Benchmark
+    public List<UserTryProblem> leetcodeCrawler() {
+        return leetCodeCrawler.userTryProblems(leetcodeUser);
+    }
+
+    @Benchmark
+    public LeetCodeProgressParser.Page leetcodeParser(Blackhole bh) throws IOException {
+        return LeetCodeProgressParser.parse(new ByteArrayInputStream(leetcodeProgress), bh::consume);
+    }
+
+    @Benchmark
+    public List<UserTryProblem> hduCrawler() {
+        return hduCrawler.userTryProblems(hduUser);
+    }
+
+    @Benchmark
+    public List<UserTryProblem> pojCrawler() {
+        return pojCrawler.userTryProblems(pojUser);
+    }
+
+    private static String url(OJPlatform platform, Object... args) {
+        Object[] all = new Object[args.length + 1];
+        all[0] = CrawlerFixtures.HANDLE;
+        System.arraycopy(args, 0, all, 1, args.length);
+        return String.format(CrawlerFixtures.LINKS.get(platform).getUserInfoLink(), all);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void requireNonEmpty(String name, List<UserTryProblem> tries) {
+        if (tries.isEmpty()) {
+            throw new IllegalStateException(name + " 样本解析结果为空，请检查样本与链接模板");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.codingtracker.benchmark;
+
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.ProblemResult;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.util.AttemptKeySet;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抓取结果去重与比对的开销：UserTryProblem 的 equals / hashCode / compareTo
+ * 在 TreeSet、HashSet 中的表现，以及 saveNewTries 所用的 AttemptKeySet（压缩为 long 的去重键）比对。
+ * 已入库集合取抓取结果的一半，模拟增量刷新
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TryDiffBenchmark {
+
+    private static final ProblemResult[] RESULTS = ProblemResult.values();
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private List<UserTryProblem> fetched;
+    private TreeSet<UserTryProblem> existingTree;
+    private HashSet<UserTryProblem> existingHash;
+    private AttemptKeySet existingKeys;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            User user = new User();
+            user.setId(i);
+            users.add(user);
+        }
+        LocalDateTime base = LocalDateTime.of(2024, 6, 1, 0, 0);
+        fetched = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ExtOjPbInfo problem = new ExtOjPbInfo();
+            problem.setId((long) random.nextInt(size / 2) + 1);
+            fetched.add(UserTryProblem.builder()
+                    .user(users.get(random.nextInt(users.size())))
+                    .extOjPbInfo(problem)
+                    .ojName(OJPlatform.CODEFORCES)
+                    .result(RESULTS[random.nextInt(RESULTS.length)])
+                    .attemptTime(base.minusMinutes(i * 7L))
+                    .build());
+        }
+        List<UserTryProblem> stored = fetched.subList(0, size / 2);
+        existingTree = new TreeSet<>(stored);
+        existingHash = new HashSet<>(stored);
+        existingKeys = new AttemptKeySet(stored.size());
+        stored.forEach(existingKeys::add);
+    }
+
+    @Benchmark
+    public TreeSet<UserTryProblem> treeSetBuild() {
+        return new TreeSet<>(fetched);
+    }
+
+    @Benchmark
+    public HashSet<UserTryProblem> hashSetBuild() {
+        return new HashSet<>(fetched);
+    }
+
+    @Benchmark
+    public List<UserTryProblem> treeSetDiff() {
+        List<UserTryProblem> fresh = new ArrayList<>();
+        for (UserTryProblem t : fetched) {
+            if (!existingTree.contains(t)) {
+                fresh.add(t);
+            }
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    public List<UserTryProblem> hashSetDiff() {
+        List<UserTryProblem> fresh = new ArrayList<>();
+        for (UserTryProblem t : fetched) {
+            if (!existingHash.contains(t)) {
+                fresh.add(t);
+            }
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    public AttemptKeySet attemptKeySetBuild() {
+        AttemptKeySet keys = new AttemptKeySet();
+        fetched.forEach(keys::add);
+        return keys;
+    }
+
+    @Benchmark
+    public List<UserTryProblem> attemptKeySetDiff() {
+        List<UserTryProblem> fresh = new ArrayList<>();
+        for (UserTryProblem t : fetched) {
+            if (!existingKeys.contains(t)) {
+                fresh.add(t);
+            }
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,152 @@
+package com.codingtracker.controller.api.admin;
+
+import com.codingtracker.crawler.ProblemIdCache;
+import com.codingtracker.dto.ApiResponse;
+import com.codingtracker.dto.OptimizedRebuildReport;
+import com.codingtracker.service.CrawlJobService;
+import com.codingtracker.service.DailyStatsService;
+import com.codingtracker.service.DataMigrationService;
+import com.codingtracker.service.HeatmapCache;
+import com.codingtracker.service.LeaderboardCache;
+import com.codingtracker.service.SolvedProblemIndex;
+import com.codingtracker.service.TagStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 数据维护控制器 - 冗余表重建等运维操作
+ */
+@RestController
+@RequestMapping("/api/admin/data")
+@PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+public class DataMaintenanceController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataMaintenanceController.class);
+
+    @Autowired
+    private DataMigrationService dataMigrationService;
+
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    @Autowired
+    private LeaderboardCache leaderboardCache;
+
+    @Autowired
+    private HeatmapCache heatmapCache;
+
+    @Autowired
+    private ProblemIdCache problemIdCache;
+
+    @Autowired
+    private CrawlJobService crawlJobService;
+
+    @Autowired
+    private SolvedProblemIndex solvedProblemIndex;
+
+    @Autowired
+    private TagStatsService tagStatsService;
+
+    /**
+     * 以影子表模式全量重建冗余表，返回构建耗时与切换窗口
+     */
+    @PostMapping("/optimized/rebuild")
+    public ApiResponse<OptimizedRebuildReport> rebuildOptimizedTable() {
+        try {
+            OptimizedRebuildReport report = dataMigrationService.rebuildUserTryProblemOptimizedTable();
+            return ApiResponse.ok("冗余表重建完成", report);
+        } catch (IllegalStateException e) {
+            return ApiResponse.error(e.getMessage());
+        } catch (Exception e) {
+            logger.error("重建冗余表失败: {}", e.getMessage());
+            return ApiResponse.error("重建冗余表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 全量重建日汇总表，返回写入的汇总行数
+     */
+    @PostMapping("/daily-stats/rebuild")
+    public ApiResponse<Integer> rebuildDailyStats() {
+        try {
+            int rows = dailyStatsService.rebuildAll();
+            leaderboardCache.invalidateAll();
+            heatmapCache.invalidateAll();
+            return ApiResponse.ok("日汇总表重建完成", rows);
+        } catch (Exception e) {
+            logger.error("重建日汇总表失败: {}", e.getMessage());
+            return ApiResponse.error("重建日汇总表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按当前题目标签全量重建标签汇总表，返回写入的汇总行数
+     */
+    @PostMapping("/tag-stats/rebuild")
+    public ApiResponse<Integer> rebuildTagStats() {
+        try {
+            return ApiResponse.ok("标签汇总表重建完成", tagStatsService.rebuildAll());
+        } catch (Exception e) {
+            logger.error("重建标签汇总表失败: {}", e.getMessage());
+            return ApiResponse.error("重建标签汇总表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 题目/标签ID缓存的条目数与命中统计
+     */
+    @GetMapping("/problem-id-cache")
+    public ApiResponse<ProblemIdCache.Stats> problemIdCacheStats() {
+        return ApiResponse.ok("获取成功", problemIdCache.stats());
+    }
+
+    /**
+     * 清空题目/标签ID缓存（手工修改题目或标签表后使用）
+     */
+    @DeleteMapping("/problem-id-cache")
+    public ApiResponse<Void> clearProblemIdCache() {
+        problemIdCache.clear();
+        return ApiResponse.ok("缓存已清空", null);
+    }
+
+    /**
+     * 持久化抓取任务按状态的数量
+     */
+    @GetMapping("/crawl-jobs")
+    public ApiResponse<Map<String, Integer>> crawlJobStats() {
+        return ApiResponse.ok("获取成功", crawlJobService.statusCounts());
+    }
+
+    /**
+     * 已解决题目索引的规模
+     */
+    @GetMapping("/solved-index")
+    public ApiResponse<SolvedProblemIndex.Stats> solvedIndexStats() {
+        return ApiResponse.ok("获取成功", solvedProblemIndex.stats());
+    }
+
+    /**
+     * 从数据库全量重建已解决题目索引（手工修改尝试记录后使用）
+     */
+    @PostMapping("/solved-index/rebuild")
+    public ApiResponse<SolvedProblemIndex.Stats> rebuildSolvedIndex() {
+        try {
+            if (!solvedProblemIndex.rebuild()) {
+                return ApiResponse.error("索引正在重建中，请稍后重试");
+            }
+            return ApiResponse.ok("索引重建完成", solvedProblemIndex.stats());
+        } catch (Exception e) {
+            logger.error("重建已解决题目索引失败: {}", e.getMessage());
+            return ApiResponse.error("重建已解决题目索引失败: " + e.getMessage());
+        }
+    }
+}
@@ -147,8 +147,8 @@ public class AuthController {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            // 将 token 加入黑名单缓存，标记为失效
-            tokenBlacklistCache.blacklistToken(token);
+            // 按 jti 吊销 token，直到其自然过期
+            tokenBlacklistCache.blacklistToken(JwtUtils.parseToken(token).getBody());
             logger.info("将用户 {} 的 token 加入黑名单", username);
         }
         return ApiResponse.ok("登出成功", null);
@@ -0,0 +1,165 @@
+package com.codingtracker.controller.api.training;
+
+import com.codingtracker.dto.ApiResponse;
+import com.codingtracker.dto.SolvedSetDTO;
+import com.codingtracker.dto.TagCoverageDTO;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.service.SolvedSetService;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已解决题目的集合查询：并集、交集、差集、未解决题目、范围内计数与标签覆盖率。
+ * 用户用 users（用户名）和 userTags（用户标签，如队伍）指定，二者取并集；
+ * 题目范围用 platform + contestId（比赛编号，精确匹配）或 pidPrefix（题号字面前缀）和 tag（题目标签）指定
+ */
+@RestController
+@RequestMapping("/api/solved")
+public class SolvedSetController {
+
+    private static final String NOT_READY = "题目索引构建中，请稍后再试";
+
+    @Autowired
+    private SolvedSetService solvedSetService;
+
+    /**
+     * 任一用户解决过的题目
+     */
+    @GetMapping("/union")
+    public ApiResponse<SolvedSetDTO> union(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) List<String> userTags,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!solvedSetService.isReady()) {
+            return ApiResponse.error(NOT_READY);
+        }
+        Map<Integer, String> resolved = solvedSetService.resolveUsers(users, userTags);
+        if (resolved.isEmpty()) {
+            return ApiResponse.error("未找到指定的用户");
+        }
+        return ApiResponse.ok("查询成功", solvedSetService.union(resolved.keySet(), cap(limit)));
+    }
+
+    /**
+     * 所有用户都解决过的题目
+     */
+    @GetMapping("/intersection")
+    public ApiResponse<SolvedSetDTO> intersection(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) List<String> userTags,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!solvedSetService.isReady()) {
+            return ApiResponse.error(NOT_READY);
+        }
+        Map<Integer, String> resolved = solvedSetService.resolveUsers(users, userTags);
+        if (resolved.isEmpty()) {
+            return ApiResponse.error("未找到指定的用户");
+        }
+        return ApiResponse.ok("查询成功", solvedSetService.intersection(resolved.keySet(), cap(limit)));
+    }
+
+    /**
+     * user 解决过、而 others / otherTags 中的用户都没解决过的题目
+     */
+    @GetMapping("/difference")
+    public ApiResponse<SolvedSetDTO> difference(
+            @RequestParam String user,
+            @RequestParam(required = false) List<String> others,
+            @RequestParam(required = false) List<String> otherTags,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!solvedSetService.isReady()) {
+            return ApiResponse.error(NOT_READY);
+        }
+        Map<Integer, String> left = solvedSetService.resolveUsers(List.of(user), null);
+        Map<Integer, String> right = solvedSetService.resolveUsers(others, otherTags);
+        if (left.isEmpty()) {
+            return ApiResponse.error("用户未找到");
+        }
+        int userId = left.keySet().iterator().next();
+        right.remove(userId);
+        return ApiResponse.ok("查询成功", solvedSetService.difference(userId, right.keySet(), cap(limit)));
+    }
+
+    /**
+     * 范围内没有任何一个指定用户解决过的题目，必须指定范围
+     */
+    @GetMapping("/unsolved")
+    public ApiResponse<SolvedSetDTO> unsolved(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) List<String> userTags,
+            @RequestParam(required = false) OJPlatform platform,
+            @RequestParam(required = false) String contestId,
+            @RequestParam(required = false) String pidPrefix,
+            @RequestParam(required = false) String tag,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!solvedSetService.isReady()) {
+            return ApiResponse.error(NOT_READY);
+        }
+        if (contestId != null && !contestId.matches("\\d+")) {
+            return ApiResponse.error("contestId 须为数字");
+        }
+        RoaringBitmap scope = solvedSetService.scope(platform, contestId, pidPrefix, tag);
+        if (scope == null) {
+            return ApiResponse.error("请指定题目范围（platform 或 tag）");
+        }
+        Map<Integer, String> resolved = solvedSetService.resolveUsers(users, userTags);
+        if (resolved.isEmpty()) {
+            return ApiResponse.error("未找到指定的用户");
+        }
+        return ApiResponse.ok("查询成功", solvedSetService.unsolved(resolved.keySet(), scope, cap(limit)));
+    }
+
+    /**
+     * 每个用户在范围内解决的题目数，未指定范围时为解决总数
+     */
+    @GetMapping("/counts")
+    public ApiResponse<Map<String, Long>> counts(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) List<String> userTags,
+            @RequestParam(required = false) OJPlatform platform,
+            @RequestParam(required = false) String contestId,
+            @RequestParam(required = false) String pidPrefix,
+            @RequestParam(required = false) String tag) {
+        if (!solvedSetService.isReady()) {
+            return ApiResponse.error(NOT_READY);
+        }
+        if (contestId != null && !contestId.matches("\\d+")) {
+            return ApiResponse.error("contestId 须为数字");
+        }
+        Map<Integer, String> resolved = solvedSetService.resolveUsers(users, userTags);
+        if (resolved.isEmpty()) {
+            return ApiResponse.error("未找到指定的用户");
+        }
+        return ApiResponse.ok("查询成功",
+                solvedSetService.counts(resolved, solvedSetService.scope(platform, contestId, pidPrefix, tag)));
+    }
+
+    /**
+     * 各题目标签下的题目数、被任一用户解决的数量以及每个用户解决的数量
+     */
+    @GetMapping("/coverage")
+    public ApiResponse<List<TagCoverageDTO>> coverage(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) List<String> userTags,
+            @RequestParam(required = false) List<String> tags) {
+        if (!solvedSetService.isReady()) {
+            return ApiResponse.error(NOT_READY);
+        }
+        Map<Integer, String> resolved = solvedSetService.resolveUsers(users, userTags);
+        if (resolved.isEmpty()) {
+            return ApiResponse.error("未找到指定的用户");
+        }
+        return ApiResponse.ok("查询成功", solvedSetService.coverage(resolved, tags));
+    }
+
+    private static int cap(int limit) {
+        return Math.max(0, Math.min(limit, 1000));
+    }
+}
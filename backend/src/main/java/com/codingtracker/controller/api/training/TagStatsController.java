@@ -0,0 +1,68 @@
+package com.codingtracker.controller.api.training;
+
+import com.codingtracker.dto.ApiResponse;
+import com.codingtracker.dto.TagStatDTO;
+import com.codingtracker.service.TagStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 题目标签覆盖率接口：按时间窗口 [from, to]（日期，含两端）统计用户或用户分组在各题目标签上的
+ * 尝试数、AC 数与 AC 率。sort=WEAKNESS 时按 AC 率升序排列，minTries 过滤尝试过少的标签
+ */
+@RestController
+@RequestMapping("/api/tag-stats")
+public class TagStatsController {
+
+    @Autowired
+    private TagStatsService tagStatsService;
+
+    /**
+     * 单个用户的标签统计
+     */
+    @GetMapping("/users/{username}")
+    public ApiResponse<List<TagStatDTO>> userCoverage(
+            @PathVariable String username,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "TRIES") TagStatsService.Sort sort,
+            @RequestParam(defaultValue = "0") long minTries) {
+        Optional<List<TagStatDTO>> stats = tagStatsService.userCoverage(
+                username, fromOrMin(from), toOrMax(to), sort, minTries);
+        return stats.map(s -> ApiResponse.ok("查询成功", s)).orElseGet(() -> ApiResponse.error("用户未找到"));
+    }
+
+    /**
+     * 用户分组（user_tag）的标签统计，perUser=false 时合计全组，true 时返回组内每个用户的统计
+     */
+    @GetMapping("/groups/{groupName}")
+    public ApiResponse<?> groupCoverage(
+            @PathVariable String groupName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean perUser,
+            @RequestParam(defaultValue = "TRIES") TagStatsService.Sort sort,
+            @RequestParam(defaultValue = "0") long minTries) {
+        if (perUser) {
+            Map<String, List<TagStatDTO>> stats = tagStatsService.groupCoveragePerUser(
+                    groupName, fromOrMin(from), toOrMax(to), sort, minTries);
+            return ApiResponse.ok("查询成功", stats);
+        }
+        return ApiResponse.ok("查询成功",
+                tagStatsService.groupCoverage(groupName, fromOrMin(from), toOrMax(to), sort, minTries));
+    }
+
+    private static LocalDate fromOrMin(LocalDate from) {
+        return from == null ? LocalDate.of(1970, 1, 1) : from;
+    }
+
+    private static LocalDate toOrMax(LocalDate to) {
+        return to == null ? LocalDate.of(9999, 12, 31) : to;
+    }
+}
@@ -1,21 +1,40 @@
 package com.codingtracker.controller.api.training;
 
+import com.codingtracker.crawler.CrawlPriority;
 import com.codingtracker.dto.ApiResponse;
+import com.codingtracker.dto.CursorPage;
+import com.codingtracker.dto.HeatmapDTO;
 import com.codingtracker.dto.UserTryProblemDTO;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.ProblemResult;
 import com.codingtracker.model.User;
+import com.codingtracker.model.UserOJ;
+import com.codingtracker.repository.UserTryProblemOptimizedJdbcRepository.ExportFilter;
+import com.codingtracker.service.CrawlJobService;
 import com.codingtracker.service.ExtOjService;
+import com.codingtracker.service.HeatmapCache;
+import com.codingtracker.service.LeaderboardCache;
 import com.codingtracker.service.UserService;
+import com.codingtracker.service.UserTryExportService;
 import com.codingtracker.service.UserTryProblemService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 用户尝试记录相关接口控制器
@@ -32,6 +51,14 @@ public class UserTryController {
     private UserService userService;
     @Autowired
     private UserTryProblemService userTryProblemService;
+    @Autowired
+    private LeaderboardCache leaderboardCache;
+    @Autowired
+    private CrawlJobService crawlJobService;
+    @Autowired
+    private UserTryExportService userTryExportService;
+    @Autowired
+    private HeatmapCache heatmapCache;
 
     /**
      * 获取指定用户的所有尝试记录（分页）
@@ -61,6 +88,107 @@ public class UserTryController {
         return ApiResponse.ok("查询成功", data);
     }
 
+    /**
+     * 按游标分页获取指定用户的尝试记录，翻到任意深度代价相同。
+     * 首页不传 cursor，之后传上一页返回的 nextCursor；withTotal=true 时附带总条数
+     */
+    @GetMapping("/history/{username}")
+    public ApiResponse<CursorPage<UserTryProblemDTO>> history(
+            @PathVariable String username,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        if (size < 1 || size > 100) {
+            return ApiResponse.error("每页条数须在 1 到 100 之间");
+        }
+        if (userService.getUserByUsername(username).isEmpty()) {
+            logger.warn("用户不存在：{}", username);
+            return ApiResponse.error("用户未找到");
+        }
+        try {
+            return ApiResponse.ok("查询成功",
+                    userTryProblemService.getUserTryHistory(username, cursor, size, withTotal));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取指定用户某一年（默认今年）的每日活跃度热力图，数据来自内存缓存。
+     * 支持 If-None-Match 条件请求，内容未变时返回 304
+     */
+    @GetMapping("/heatmap/{username}")
+    public ResponseEntity<ApiResponse<HeatmapDTO>> heatmap(
+            @PathVariable String username,
+            @RequestParam(required = false) Integer year,
+            WebRequest request) {
+        Optional<User> userOpt = userService.getUserByUsername(username);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.ok(ApiResponse.error("用户未找到"));
+        }
+        int y = year == null ? LocalDate.now().getYear() : year;
+        if (y < 1970 || y > 9999) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("年份无效"));
+        }
+
+        HeatmapCache.Heatmap heatmap = heatmapCache.get(userOpt.get().getId(), y);
+        if (request.checkNotModified(heatmap.etag())) {
+            return null;
+        }
+        HeatmapDTO dto = new HeatmapDTO(username, y, heatmap.tries(), heatmap.acs(),
+                heatmap.totalTries(), heatmap.totalAc(), heatmap.activeDays());
+        return ResponseEntity.ok().eTag(heatmap.etag()).body(ApiResponse.ok("查询成功", dto));
+    }
+
+    /**
+     * 按条件流式导出尝试记录（管理员），格式为 ndjson 或 csv，gzip=true 时压缩输出。
+     * 边查边写，导出行数不受内存限制；各条件均可省略，时间区间为 [from, to)
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SUPER_ADMIN')")
+    public ResponseEntity<?> export(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false) List<String> platforms,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String result,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        UserTryExportService.Format fmt;
+        List<String> platformNames = new ArrayList<>();
+        try {
+            fmt = UserTryExportService.Format.valueOf(format.toUpperCase());
+            if (platforms != null) {
+                platforms.forEach(p -> platformNames.add(OJPlatform.valueOf(p.toUpperCase()).name()));
+            }
+            if (result != null) {
+                result = ProblemResult.valueOf(result.toUpperCase()).name();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("导出参数无效"));
+        }
+
+        ExportFilter filter = new ExportFilter(users, tags, platformNames, from, to, result);
+        String operator = SecurityContextHolder.getContext().getAuthentication().getName();
+        logger.info("用户 {} 导出尝试记录，条件：{}，格式：{}，压缩：{}", operator, filter, fmt, gzip);
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream zipped = new GZIPOutputStream(out, 64 * 1024);
+                userTryExportService.export(filter, fmt, zipped);
+                zipped.finish();
+            } else {
+                userTryExportService.export(filter, fmt, out);
+            }
+        };
+        String filename = "attempts." + fmt.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : fmt.contentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
     /**
      * 更新当前登录用户的尝试记录（管理员更新所有）
      */
@@ -91,7 +219,7 @@ public class UserTryController {
             @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
 
         logger.info("开始查询尝试记录统计，时间范围：{} 至 {}", start, end);
-        List<?> data = userTryProblemService.getTryCounts(start, end);
+        List<?> data = leaderboardCache.getTryCounts(start, end);
         logger.info("成功查询尝试记录统计，返回 {} 条记录", data.size());
         return ApiResponse.ok("查询成功", data);
     }
@@ -105,7 +233,7 @@ public class UserTryController {
             @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
 
         logger.info("开始查询AC记录统计，时间范围：{} 至 {}", start, end);
-        List<?> data = userTryProblemService.getAcCounts(start, end);
+        List<?> data = leaderboardCache.getAcCounts(start, end);
         logger.info("成功查询AC记录统计，返回 {} 条记录", data.size());
         return ApiResponse.ok("查询成功", data);
     }
@@ -178,7 +306,8 @@ public class UserTryController {
     }
 
     /**
-     * 强制同步刷新一次（不建议前端开放，调试用）
+     * 清空抓取水位线并提交一次全量抓取（不建议前端开放，调试用）。
+     * 与 /refresh/{username} 一样只负责入队，抓取由后台任务执行，返回时尚未完成
      */
     @PostMapping("/stats/force-rebuild")
     public ApiResponse<Void> forceRebuild() {
@@ -191,10 +320,11 @@ public class UserTryController {
             return ApiResponse.error("您没有权限");
         }
 
-        logger.warn("管理员 {} 强制执行刷新操作", username);
+        logger.warn("管理员 {} 强制提交全量抓取（清空水位线）", username);
+        extOjService.resetCrawlWatermarks();
         extOjService.flushTriesDB();
-        logger.info("强制刷新操作完成，用户：{}", username);
-        return ApiResponse.ok("强制刷新成功", null);
+        logger.info("强制全量抓取已加入刷新队列，用户：{}", username);
+        return ApiResponse.ok("已加入刷新队列，全量抓取将在后台执行", null);
     }
 
     /**
@@ -268,4 +398,54 @@ public class UserTryController {
 
         return ApiResponse.ok("开始强制更新，这需要几分钟", null);
     }
+
+    /**
+     * 按需刷新指定用户全部平台的尝试记录（本人或管理员），高优先级排队，可在全量刷新期间使用
+     */
+    @PostMapping("/refresh/{username}")
+    public ApiResponse<CrawlJobService.Ticket> refreshUser(@PathVariable String username) {
+        return enqueueRefresh(username, null);
+    }
+
+    /**
+     * 按需刷新指定用户某个 OJ 账号所在平台的尝试记录
+     */
+    @PostMapping("/refresh/{username}/accounts/{userOjId}")
+    public ApiResponse<CrawlJobService.Ticket> refreshUserAccount(@PathVariable String username,
+            @PathVariable Integer userOjId) {
+        return enqueueRefresh(username, userOjId);
+    }
+
+    private ApiResponse<CrawlJobService.Ticket> enqueueRefresh(String username, Integer userOjId) {
+        String current = SecurityContextHolder.getContext().getAuthentication().getName();
+        Optional<User> currentOpt = userService.getUserByUsername(current);
+        if (currentOpt.isEmpty()) {
+            logger.warn("未登录用户尝试按需刷新：{}", current);
+            return ApiResponse.error("您没有登录");
+        }
+        if (!current.equals(username) && !currentOpt.get().isAdmin()) {
+            logger.warn("用户 {} 无权刷新用户 {} 的记录", current, username);
+            return ApiResponse.error("您没有权限");
+        }
+
+        Optional<User> targetOpt = current.equals(username) ? currentOpt : userService.getUserByUsername(username);
+        if (targetOpt.isEmpty()) {
+            return ApiResponse.error("用户未找到");
+        }
+
+        Set<OJPlatform> platforms = userService.getOJAccountsByUsername(username).stream()
+                .filter(a -> userOjId == null || userOjId.equals(a.getId()))
+                .map(UserOJ::getPlatform)
+                .filter(extOjService.supportedPlatforms()::contains)
+                .collect(java.util.stream.Collectors.toSet());
+        if (platforms.isEmpty()) {
+            return ApiResponse.error(userOjId == null ? "该用户没有可刷新的OJ账号" : "OJ账号不存在或平台不支持刷新");
+        }
+
+        CrawlJobService.Ticket ticket = crawlJobService.enqueue(
+                targetOpt.get().getId(), platforms, CrawlPriority.HIGH);
+        logger.info("用户 {} 提交了 {} 的按需刷新（平台: {}），合并: {}，排队: {}",
+                current, username, platforms, ticket.coalesced(), ticket.queued());
+        return ApiResponse.ok(ticket.coalesced() ? "已在刷新队列中" : "已加入刷新队列", ticket);
+    }
 }
@@ -1,11 +1,11 @@
 package com.codingtracker.crawler;
 
+import com.codingtracker.crawler.CFSubmissionParser.CFSubmission;
 import com.codingtracker.exception.CrawlerException;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
-import com.codingtracker.repository.ExtOjPbInfoRepository;
-import com.codingtracker.repository.ProblemTagRepository;
-import com.codingtracker.repository.TagRepository;
+import com.codingtracker.repository.ProblemTagRepository.ProblemRow;
+import com.codingtracker.service.ProblemUpsertService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.common.util.StringUtils;
@@ -19,9 +19,8 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * CFCrawler 类（Codeforces API 客户端），使用 Jackson 解析 JSON，映射用户基本信息与提交记录。
@@ -31,21 +30,20 @@ public class CFCrawler {
 
   private static final Logger logger = LoggerFactory.getLogger(CFCrawler.class);
   private static final ObjectMapper mapper = new ObjectMapper();
+  /** 增量抓取时每页请求的提交数 */
+  private static final int INCREMENTAL_PAGE_SIZE = 100;
 
   @Autowired
   private HttpUtil httpUtil;
 
   @Autowired
-  private ExtOjPbInfoRepository extOjPbInfoRepository;
+  private ExtOjLinkDataLoader extOjLinkDataLoader;
 
   @Autowired
-  private TagRepository tagRepository;
+  private ProblemUpsertService problemUpsertService;
 
   @Autowired
-  private ExtOjLinkRepository extOjLinkRepository;
-
-  @Autowired
-  private ProblemTagRepository problemTagRepository;
+  private CrawlScheduler crawlScheduler;
 
   public OJPlatform getOjType() {
     return OJPlatform.CODEFORCES;
@@ -67,164 +65,138 @@ public class CFCrawler {
   }
 
   /**
-   * 获取某用户的所有提交记录，并映射成 UserTryProblem 实体列表
+   * 获取某用户的提交记录（按账号水位线增量拉取），并映射成 UserTryProblem 实体列表
    *
    * @param user 当前用户名
-   * @return UserTryProblem 列表，发生异常时返回空列表
+   * @return UserTryProblem 列表
+   * @throws CrawlerException 任一 handle 未能完整拉取
    */
   @Transactional
   public List<UserTryProblem> userTryProblems(User user) {
-    try {
-      // 1. 获取 OJ 配置
-      ExtOjLink ojLink = extOjLinkRepository.findById(getOjType())
-          .orElseThrow(() -> new CrawlerException(getOjType(), "Missing link config for " + getOjType()));
-      String userInfoTemplate = ojLink.getUserInfoLink();
-      String problemPageTemplate = ojLink.getProblemLink();
+    // 1. 获取 OJ 配置
+    ExtOjLink ojLink = extOjLinkDataLoader.find(getOjType())
+        .orElseThrow(() -> new CrawlerException(getOjType(), "Missing link config for " + getOjType()));
+    String userInfoTemplate = ojLink.getUserInfoLink();
+    String problemPageTemplate = ojLink.getProblemLink();
 
-      // 2. 收集所有 handles 并获取所有提交
-      List<String> handles = user.getOjAccounts().stream()
-          .filter(uo -> uo.getPlatform() == getOjType())
-          .map(UserOJ::getAccountName)
-          .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
-          .filter(StringUtils::isNotBlank)
-          .toList();
-      if (handles.isEmpty()) {
-        logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-        return Collections.emptyList();
-      }
+    // 2. 按账号收集 handles 并获取提交（有水位线的账号只拉取水位线之后的部分）
+    List<UserOJ> accounts = user.getOjAccounts().stream()
+        .filter(uo -> uo.getPlatform() == getOjType())
+        .filter(uo -> StringUtils.isNotBlank(uo.getAccountName()))
+        .toList();
+    if (accounts.isEmpty()) {
+      logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
+      return Collections.emptyList();
+    }
 
-      List<JsonNode> submissions = new ArrayList<>();
-      for (String handle : handles) {
-        String url = String.format(userInfoTemplate, handle);
+    List<AccountSubmission> submissions = new ArrayList<>();
+    for (UserOJ account : accounts) {
+      long since = account.getLastAttemptTime() == null
+          ? -1
+          : account.getLastAttemptTime().toEpochSecond(ZoneOffset.UTC);
+      for (String handle : account.getAccountName().split("\\s*,\\s*")) {
+        if (StringUtils.isBlank(handle)) {
+          continue;
+        }
+        // 任一 handle 未拉取完整都直接失败，避免按部分结果推进账号水位线
         try {
-          String json = httpUtil.readURL(url);
-          JsonNode root = mapper.readTree(json);
-          if (!"OK".equals(root.path("status").asText())) {
-            String comment = root.path("comment").asText("Unknown error");
-            logger.warn("获取用户 {} 提交记录失败: {}", handle, comment);
-            continue;
-          }
-          root.path("result").forEach(submissions::add);
+          fetchSubmissions(userInfoTemplate, handle.trim(), since,
+              sub -> submissions.add(new AccountSubmission(account, sub)));
         } catch (IOException e) {
-          logger.error("获取用户 {} 提交记录网络请求失败: {}", handle, e.getMessage());
-        } catch (Exception e) {
-          logger.error("获取用户 {} 提交记录时发生异常: {}", handle, e.getMessage());
+          throw new CrawlerException(getOjType(), "获取用户 " + handle + " 提交记录网络请求失败: " + e.getMessage(), e);
         }
       }
-      if (submissions.isEmpty()) {
-        logger.info("用户 {} 在 {} 平台没有提交记录", user.getUsername(), getOjType());
-        return Collections.emptyList();
-      }
-
-      // 3. 批量收集 pid 和标签名
-      Set<String> allPids = new HashSet<>();
-      Map<String, Set<String>> pidToTags = new HashMap<>();
-      for (JsonNode sub : submissions) {
-        JsonNode p = sub.path("problem");
-        String pid = p.path("contestId").asText() + p.path("index").asText();
-        allPids.add(pid);
-        pidToTags.computeIfAbsent(pid, k -> new HashSet<>())
-            .addAll(StreamSupport.stream(p.path("tags").spliterator(), false)
-                .map(JsonNode::asText)
-                .collect(Collectors.toSet()));
-      }
-      Set<String> allTagNames = pidToTags.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
-
-      // 4. 批量查询已有题目和标签
-      List<ExtOjPbInfo> existInfos = extOjPbInfoRepository.findByOjNameAndPidIn(getOjType(), allPids);
-      List<Tag> existTags = tagRepository.findByNameIn(allTagNames);
-      Map<String, ExtOjPbInfo> infosMap = existInfos.stream()
-          .collect(Collectors.toMap(ExtOjPbInfo::getPid, Function.identity()));
-      Map<String, Tag> tagsMap = existTags.stream()
-          .collect(Collectors.toMap(Tag::getName, Function.identity()));
-
-      // 5. 批量插入缺失的题目
-      List<ExtOjPbInfo> newInfos = allPids.stream()
-          .filter(pid -> !infosMap.containsKey(pid))
-          .map(pid -> {
-            // 拆 contestId 和 index
-            String contestId = pid.replaceAll("\\D.*", "");
-            String index = pid.substring(contestId.length());
-            String url = String.format(problemPageTemplate, contestId, index);
-            return ExtOjPbInfo.builder()
-                .ojName(getOjType())
-                .pid(pid)
-                .name("") // 可选：待更新
-                .url(url)
-                .points(null)
-                .tags(new HashSet<>())
-                .build();
-          })
-          .toList();
-      newInfos.forEach(e -> infosMap.put(e.getPid(), e));
+    }
+    if (submissions.isEmpty()) {
+      logger.info("用户 {} 在 {} 平台没有新的提交记录", user.getUsername(), getOjType());
+      return Collections.emptyList();
+    }
 
-      // 6. 批量插入缺失标签
-      List<Tag> newTags = allTagNames.stream()
-          .filter(name -> !tagsMap.containsKey(name))
-          .map(Tag::new)
-          .toList();
-      newTags.forEach(t -> tagsMap.put(t.getName(), t));
+    // 3. 按 pid 汇总标签
+    Map<String, Set<String>> pidToTags = new HashMap<>();
+    for (AccountSubmission as : submissions) {
+      CFSubmission sub = as.submission();
+      pidToTags.computeIfAbsent(sub.pid(), k -> new HashSet<>()).addAll(sub.tags());
+    }
 
-      // 保存获得主键
-      extOjPbInfoRepository.saveAll(newInfos);
-      tagRepository.saveAll(newTags);
+    // 4. 批量写入题目、标签及关联，一次拿回全部题目ID
+    List<ProblemRow> rows = pidToTags.entrySet().stream()
+        .map(e -> {
+          // 拆 contestId 和 index
+          String pid = e.getKey();
+          String contestId = pid.replaceAll("\\D.*", "");
+          String index = pid.substring(contestId.length());
+          String url = String.format(problemPageTemplate, contestId, index);
+          return new ProblemRow(pid, "", null, null, url, e.getValue());
+        })
+        .toList();
+    Map<String, Long> problemIds = problemUpsertService.upsert(getOjType(), rows);
 
-      // 7. 同步题目-标签关系，构建批量插入数据结构
-      // 重新查询所有题目和标签，确保都是持久化对象且有ID
-      List<ExtOjPbInfo> allInfos = extOjPbInfoRepository.findByOjNameAndPidInWithTags(getOjType(), allPids);
-      List<Tag> allTags = tagRepository.findByNameIn(allTagNames);
+    // 5. 构造尝试记录
+    List<UserTryProblem> tries = submissions.stream()
+        .filter(as -> problemIds.containsKey(as.submission().pid()))
+        .map(as -> {
+      CFSubmission sub = as.submission();
+      LocalDateTime time = LocalDateTime.ofEpochSecond(sub.creationTimeSeconds(), 0, ZoneOffset.UTC);
+      ProblemResult result = switch (sub.verdict()) {
+        case "OK" -> ProblemResult.AC;
+        case "WRONG_ANSWER" -> ProblemResult.WA;
+        case "TIME_LIMIT_EXCEEDED" -> ProblemResult.TLE;
+        case "COMPILATION_ERROR" -> ProblemResult.CE;
+        case "RUNTIME_ERROR" -> ProblemResult.RE;
+        default -> ProblemResult.UNKNOWN;
+      };
+      return UserTryProblem.builder()
+          .user(user)
+          .userOj(as.account())
+          .extOjPbInfo(ProblemUpsertService.reference(problemIds.get(sub.pid())))
+          .ojName(getOjType())
+          .result(result)
+          .attemptTime(time)
+          .build();
+    }).toList();
 
-      // 构建映射和problemTagsMap
-      Map<String, Tag> tagNameToTag = allTags.stream()
-          .collect(Collectors.toMap(Tag::getName, Function.identity()));
+    logger.info("用户 {} 共抓取 {} 条尝试记录", user.getUsername(), tries.size());
+    return tries;
+  }
 
-      Map<Long, Set<Long>> problemTagsMap = new HashMap<>();
-      for (ExtOjPbInfo info : allInfos) {
-        Set<String> desiredTagNames = pidToTags.getOrDefault(info.getPid(), Collections.emptySet());
-        Set<Long> tagIds = desiredTagNames.stream()
-            .map(tagNameToTag::get)
-            .filter(Objects::nonNull)
-            .map(Tag::getId)
-            .collect(Collectors.toSet());
-        problemTagsMap.put(info.getId(), tagIds);
+  /**
+   * 拉取某个 handle 的提交记录。user.status 按提交时间倒序返回，
+   * 给定水位线时按 from/count 分页，遇到早于水位线的提交即停止；否则一次拉取全部。
+   * 响应边下载边解析，不在内存中保留整棵 JSON 树。
+   *
+   * @param userInfoTemplate user.status 链接模板
+   * @param handle           Codeforces handle
+   * @param since            水位线（epoch 秒），小于 0 表示全量
+   * @param sink             不早于水位线的提交
+   * @throws CrawlerException 某一页返回失败，此时该 handle 的结果不完整
+   */
+  private void fetchSubmissions(String userInfoTemplate, String handle, long since,
+      Consumer<CFSubmission> sink) throws IOException {
+    String baseUrl = String.format(userInfoTemplate, handle);
+    int from = 1;
+    while (true) {
+      String url = since < 0 ? baseUrl : baseUrl + "&from=" + from + "&count=" + INCREMENTAL_PAGE_SIZE;
+      crawlScheduler.throttle(getOjType());
+      CFSubmissionParser.Page page = httpUtil.readURLStream(url, null,
+          in -> CFSubmissionParser.parse(in, since, sink));
+      if (!page.ok()) {
+        throw new CrawlerException(getOjType(), "获取用户 " + handle + " 提交记录失败: "
+            + (page.comment() != null ? page.comment() : "Unknown error"));
       }
-
-      // 调用批量插入，处理关联关系
-      problemTagRepository.batchInsertProblemTags(problemTagsMap);
-
-      // 8. 构造并保存尝试记录
-      List<UserTryProblem> tries = submissions.stream().map(sub -> {
-        JsonNode p = sub.path("problem");
-        String pid = p.path("contestId").asText() + p.path("index").asText();
-        LocalDateTime time = LocalDateTime.ofEpochSecond(sub.path("creationTimeSeconds").asLong(), 0, ZoneOffset.UTC);
-        ProblemResult result = switch (sub.path("verdict").asText()) {
-          case "OK" -> ProblemResult.AC;
-          case "WRONG_ANSWER" -> ProblemResult.WA;
-          case "TIME_LIMIT_EXCEEDED" -> ProblemResult.TLE;
-          case "COMPILATION_ERROR" -> ProblemResult.CE;
-          case "RUNTIME_ERROR" -> ProblemResult.RE;
-          default -> ProblemResult.UNKNOWN;
-        };
-        return UserTryProblem.builder()
-            .user(user)
-            .extOjPbInfo(infosMap.get(pid))
-            .ojName(getOjType())
-            .result(result)
-            .attemptTime(time)
-            .build();
-      }).toList();
-
-      logger.info("用户 {} 共抓取 {} 条尝试记录", user.getUsername(), tries.size());
-      return tries;
-    } catch (CrawlerException e) {
-      logger.error("CF爬虫异常: {}", e.getMessage());
-      return Collections.emptyList();
-    } catch (Exception e) {
-      logger.error("获取CF用户尝试记录时发生未知异常: {}", e.getMessage());
-      return Collections.emptyList();
+      if (since < 0 || page.reachedWatermark() || page.count() < INCREMENTAL_PAGE_SIZE) {
+        return;
+      }
+      from += INCREMENTAL_PAGE_SIZE;
     }
   }
 
+  /**
+   * 提交记录及其所属账号
+   */
+  private record AccountSubmission(UserOJ account, CFSubmission submission) {
+  }
+
   /**
    * 解析Cookie字符串为Map
    */
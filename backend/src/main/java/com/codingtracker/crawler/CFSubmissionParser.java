@@ -0,0 +1,138 @@
+package com.codingtracker.crawler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Codeforces user.status 响应的流式解析器。
+ * 直接在 {@link JsonParser} 上逐条读取提交，只保留爬虫需要的字段，不构建 JsonNode 树；
+ * 提交按时间倒序返回，遇到早于水位线的提交即停止读取，剩余响应不再下载。
+ */
+public final class CFSubmissionParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private CFSubmissionParser() {
+    }
+
+    /**
+     * 精简后的提交记录
+     *
+     * @param pid                 题号（contestId + index）
+     * @param creationTimeSeconds 提交时间（epoch 秒）
+     * @param verdict             评测结果，评测中的提交为空字符串
+     * @param tags                题目标签
+     */
+    public record CFSubmission(String pid, long creationTimeSeconds, String verdict, List<String> tags) {
+    }
+
+    /**
+     * 一次响应的解析摘要
+     *
+     * @param ok               status 是否为 OK
+     * @param comment          失败时的说明
+     * @param count            交给 sink 的提交条数
+     * @param reachedWatermark 是否因遇到水位线之前的提交而提前停止
+     */
+    public record Page(boolean ok, String comment, int count, boolean reachedWatermark) {
+    }
+
+    /**
+     * 解析 user.status 响应，将不早于水位线的提交依次交给 sink
+     *
+     * @param in    响应体
+     * @param since 水位线（epoch 秒），小于 0 表示不过滤
+     * @param sink  提交消费者
+     * @return 解析摘要
+     */
+    public static Page parse(InputStream in, long since, Consumer<CFSubmission> sink) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("user.status 响应不是 JSON 对象");
+            }
+            // 标签和评测结果取值有限，同一次解析内共享字符串实例
+            Map<String, String> strings = new HashMap<>();
+            String status = null;
+            String comment = null;
+            int count = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "status" -> status = p.getValueAsString();
+                    case "comment" -> comment = p.getValueAsString();
+                    case "result" -> {
+                        if (value != JsonToken.START_ARRAY) {
+                            p.skipChildren();
+                            continue;
+                        }
+                        while (p.nextToken() == JsonToken.START_OBJECT) {
+                            CFSubmission sub = readSubmission(p, strings);
+                            if (since >= 0 && sub.creationTimeSeconds() < since) {
+                                return new Page("OK".equals(status), comment, count, true);
+                            }
+                            sink.accept(sub);
+                            count++;
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return new Page("OK".equals(status), comment, count, false);
+        }
+    }
+
+    private static CFSubmission readSubmission(JsonParser p, Map<String, String> strings) throws IOException {
+        long creationTime = 0;
+        String verdict = "";
+        String contestId = "";
+        String index = "";
+        List<String> tags = Collections.emptyList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "creationTimeSeconds" -> creationTime = p.getValueAsLong();
+                case "verdict" -> verdict = strings.computeIfAbsent(p.getValueAsString(""), k -> k);
+                case "problem" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String pf = p.currentName();
+                        JsonToken pv = p.nextToken();
+                        switch (pf) {
+                            case "contestId" -> contestId = p.getValueAsString("");
+                            case "index" -> index = p.getValueAsString("");
+                            case "tags" -> {
+                                if (pv != JsonToken.START_ARRAY) {
+                                    p.skipChildren();
+                                    continue;
+                                }
+                                List<String> list = new ArrayList<>(4);
+                                while (p.nextToken() == JsonToken.VALUE_STRING) {
+                                    list.add(strings.computeIfAbsent(p.getText(), k -> k));
+                                }
+                                tags = list;
+                            }
+                            default -> p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new CFSubmission(contestId + index, creationTime, verdict, tags);
+    }
+}
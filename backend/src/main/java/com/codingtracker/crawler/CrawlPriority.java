@@ -0,0 +1,15 @@
+package com.codingtracker.crawler;
+
+/**
+ * 抓取任务优先级：同一平台排队的任务中，HIGH 先于 NORMAL 执行，同级按提交顺序
+ */
+public enum CrawlPriority {
+    /**
+     * 用户主动发起的按需刷新
+     */
+    HIGH,
+    /**
+     * 后台定时的全量刷新
+     */
+    NORMAL
+}
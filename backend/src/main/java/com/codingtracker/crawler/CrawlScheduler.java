@@ -0,0 +1,226 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.OJPlatform;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局共享的抓取调度器。
+ * 每个 OJ 平台拥有独立的并发上限和每秒请求预算，慢平台不会占用快平台的线程。
+ * 平台线程池的等待队列按 {@link CrawlPriority} 排序，按需刷新的任务可以插到全量刷新前面。
+ * 配置项（平台名小写）：
+ * crawler.platform.&lt;platform&gt;.max-concurrency、crawler.platform.&lt;platform&gt;.requests-per-second
+ */
+@Component
+public class CrawlScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlScheduler.class);
+
+    private final Environment environment;
+    private final int defaultConcurrency;
+    private final double defaultRequestsPerSecond;
+    private final ExecutorService virtualExecutor;
+
+    private final Map<OJPlatform, ExecutorService> executors = new EnumMap<>(OJPlatform.class);
+    private final Map<OJPlatform, Semaphore> permits = new EnumMap<>(OJPlatform.class);
+    private final Map<OJPlatform, RateLimiter> limiters = new EnumMap<>(OJPlatform.class);
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CrawlScheduler(Environment environment,
+            @Value("${crawler.platform.default.max-concurrency:4}") int defaultConcurrency,
+            @Value("${crawler.platform.default.requests-per-second:0}") double defaultRequestsPerSecond,
+            @Value("${crawler.executor.virtual-threads:false}") boolean useVirtualThreads) {
+        this.environment = environment;
+        this.defaultConcurrency = defaultConcurrency;
+        this.defaultRequestsPerSecond = defaultRequestsPerSecond;
+        this.virtualExecutor = useVirtualThreads ? createVirtualExecutor() : null;
+    }
+
+    /**
+     * 以普通优先级在指定平台的并发与速率限制下异步执行抓取任务
+     *
+     * @param platform 任务所属平台
+     * @param task     抓取任务
+     * @param <T>      返回类型
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(OJPlatform platform, Callable<T> task) {
+        return submit(platform, CrawlPriority.NORMAL, task);
+    }
+
+    /**
+     * 在指定平台的并发与速率限制下异步执行抓取任务。
+     * 优先级只影响平台线程池中排队的顺序，已开始执行的任务不会被抢占
+     *
+     * @param platform 任务所属平台
+     * @param priority 排队优先级
+     * @param task     抓取任务
+     * @param <T>      返回类型
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(OJPlatform platform, CrawlPriority priority, Callable<T> task) {
+        Semaphore semaphore = permitsFor(platform);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executorFor(platform).execute(new PrioritizedTask(priority, sequence.getAndIncrement(), () -> {
+            try {
+                semaphore.acquire();
+                try {
+                    future.complete(task.call());
+                } finally {
+                    semaphore.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * 占用一次平台请求预算，超出每秒请求数时阻塞等待。爬虫在每次发起请求前调用
+     *
+     * @param platform 请求所属平台
+     */
+    public void throttle(OJPlatform platform) {
+        RateLimiter limiter;
+        synchronized (limiters) {
+            limiter = limiters.computeIfAbsent(platform, p -> new RateLimiter(
+                    platformProperty(p, "requests-per-second", Double.class, defaultRequestsPerSecond)));
+        }
+        limiter.acquire();
+    }
+
+    /**
+     * 平台的并发上限，外部按此决定一次向该平台提交多少任务
+     */
+    public int maxConcurrency(OJPlatform platform) {
+        return concurrencyOf(platform);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (executors) {
+            executors.values().forEach(ExecutorService::shutdownNow);
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdownNow();
+        }
+    }
+
+    private Semaphore permitsFor(OJPlatform platform) {
+        synchronized (permits) {
+            return permits.computeIfAbsent(platform, p -> new Semaphore(concurrencyOf(p)));
+        }
+    }
+
+    private ExecutorService executorFor(OJPlatform platform) {
+        if (virtualExecutor != null) {
+            return virtualExecutor;
+        }
+        synchronized (executors) {
+            return executors.computeIfAbsent(platform, p -> {
+                int size = concurrencyOf(p);
+                logger.info("创建平台 {} 的抓取线程池，并发上限 {}", p, size);
+                return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                        new PriorityBlockingQueue<>(), namedThreadFactory("crawl-" + p.name().toLowerCase() + "-"));
+            });
+        }
+    }
+
+    private int concurrencyOf(OJPlatform platform) {
+        return Math.max(1, platformProperty(platform, "max-concurrency", Integer.class, defaultConcurrency));
+    }
+
+    private <T> T platformProperty(OJPlatform platform, String key, Class<T> type, T defaultValue) {
+        String name = "crawler.platform." + platform.name().toLowerCase() + "." + key;
+        return environment.getProperty(name, type, defaultValue);
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 运行在支持虚拟线程的 JDK（21+）上时使用虚拟线程执行器，否则退回平台线程池
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            logger.info("抓取调度器使用虚拟线程");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.warn("当前 JDK 不支持虚拟线程，使用按平台划分的线程池");
+            return null;
+        }
+    }
+
+    /**
+     * 可排序的任务包装：先比较优先级，同级按提交序号先进先出
+     */
+    private record PrioritizedTask(CrawlPriority priority, long seq, Runnable body)
+            implements Runnable, Comparable<PrioritizedTask> {
+
+        @Override
+        public void run() {
+            body.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+
+    /**
+     * 简单的匀速限流器：相邻两次请求至少间隔 1/rps 秒，rps 不大于 0 表示不限流
+     */
+    static class RateLimiter {
+        private final long intervalNanos;
+        private long nextFreeNanos = System.nanoTime();
+
+        RateLimiter(double requestsPerSecond) {
+            this.intervalNanos = requestsPerSecond > 0 ? (long) (1_000_000_000L / requestsPerSecond) : 0;
+        }
+
+        void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextFreeNanos);
+                nextFreeNanos = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -2,10 +2,11 @@ package com.codingtracker.crawler;
 
 import com.codingtracker.exception.CrawlerException;
 import com.codingtracker.exception.NetworkException;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
 import com.codingtracker.repository.TagRepository;
+import com.codingtracker.service.ProblemUpsertService;
 import io.micrometer.common.util.StringUtils;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -18,6 +19,8 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -29,10 +32,14 @@ import java.util.stream.Collectors;
 public class HDUCrawler {
 
     private static final Logger logger = LoggerFactory.getLogger(HDUCrawler.class);
+    private static final DateTimeFormatter SUBMIT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Autowired
     private HttpUtil httpUtil;
 
+    @Autowired
+    private ProblemUpsertService problemUpsertService;
+
     @Autowired
     private ExtOjPbInfoRepository pbInfoRepo;
 
@@ -40,7 +47,10 @@ public class HDUCrawler {
     private TagRepository tagRepo;
 
     @Autowired
-    private ExtOjLinkRepository linkRepo;
+    private ExtOjLinkDataLoader extOjLinkDataLoader;
+
+    @Autowired
+    private CrawlScheduler crawlScheduler;
 
     /**
      * 本爬虫对应的平台类型
@@ -67,11 +77,12 @@ public class HDUCrawler {
      * 获取或创建指定 HDU 题目的基础信息，包括链接
      */
     private ExtOjPbInfo fetchProblem(String pid) {
-        ExtOjLink link = linkRepo.findById(getOjType())
+        ExtOjLink link = extOjLinkDataLoader.find(getOjType())
                 .orElseThrow(() -> new RuntimeException("Missing HDU link config"));
         String problemUrl = String.format(link.getProblemLink(), pid);
         logger.info("调用 HDU problem 页面，url：{}", problemUrl);
         try {
+            crawlScheduler.throttle(getOjType());
             Document doc = httpUtil.readJsoupURL(problemUrl);
             // 示例：题目名称在 .panel_title 或 title
             String title = Optional.ofNullable(doc.selectFirst(".panel_title"))
@@ -94,94 +105,96 @@ public class HDUCrawler {
     }
 
     /**
-     * 获取某用户的所有尝试记录（仅 Accepted），映射为 UserTryProblem 列表
+     * 获取某用户的尝试记录（仅 Accepted，跳过水位线之前的记录），映射为 UserTryProblem 列表
      */
     public List<UserTryProblem> userTryProblems(User user) {
-        try {
-            ExtOjLink link = linkRepo.findById(getOjType())
-                    .orElseThrow(() -> new CrawlerException(getOjType(), "Missing HDU link config"));
-            String statusUrlTpl = link.getUserInfoLink(); // e.g. "http://acm.hdu.edu.cn/status.php?user=%s"
-
-            List<String> handles = user.getOjAccounts().stream()
-                    .filter(uo -> uo.getPlatform() == getOjType())
-                    .map(UserOJ::getAccountName)
-                    .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
-                    .filter(StringUtils::isNotBlank)
-                    .toList();
-            if (handles.isEmpty()) {
-                logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-                return Collections.emptyList();
-            }
-
-            List<UserTryProblem> tries = new ArrayList<>();
-            for (String handle : handles) {
-                try {
-                    // 找到对应的UserOJ实体
-                    UserOJ userOj = user.getOjAccounts().stream()
-                            .filter(uo -> uo.getPlatform() == getOjType() && uo.getAccountName().equals(handle))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (userOj == null) {
-                        logger.warn("未找到用户 {} 的 {} 平台账号: {}", user.getUsername(), getOjType(), handle);
-                        continue;
-                    }
+        ExtOjLink link = extOjLinkDataLoader.find(getOjType())
+                .orElseThrow(() -> new CrawlerException(getOjType(), "Missing HDU link config"));
+        String statusUrlTpl = link.getUserInfoLink(); // e.g. "http://acm.hdu.edu.cn/status.php?user=%s"
+
+        List<UserOJ> accounts = user.getOjAccounts().stream()
+                .filter(uo -> uo.getPlatform() == getOjType())
+                .filter(uo -> StringUtils.isNotBlank(uo.getAccountName()))
+                .toList();
+        if (accounts.isEmpty()) {
+            logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
+            return Collections.emptyList();
+        }
 
-                    String statusUrl = String.format(statusUrlTpl, handle);
-                    logger.info("调用 HDU user status 页面，url：{}", statusUrl);
-                    Document doc = httpUtil.readJsoupURL(statusUrl);
-                    Element table = doc.selectFirst("table.table_text");
-                    if (table == null) {
-                        logger.warn("未找到用户 {} 的提交记录表格", handle);
-                        continue;
-                    }
-                    Elements rows = table.select("tr");
-                    for (Element row : rows) {
-                        try {
-                            Elements cols = row.select("td");
-                            if (cols.size() > 5 && "Accepted".equalsIgnoreCase(cols.get(2).text().trim())) {
-                                String pid = cols.get(3).text().trim();
-                                LocalDateTime now = LocalDateTime.now();
-                                // 获取或创建题目信息并保存
-                                ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                                        .orElseGet(() -> {
-                                            try {
-                                                ExtOjPbInfo pInfo = fetchProblem(pid);
-                                                return (pInfo != null) ? pbInfoRepo.save(pInfo) : null;
-                                            } catch (Exception e) {
-                                                logger.error("获取HDU题目 {} 信息失败: {}", pid, e.getMessage());
-                                                return null;
-                                            }
-                                        });
-                                if (info == null)
-                                    continue;
-                                // 构造 UserTryProblem
-                                UserTryProblem utp = UserTryProblem.builder()
-                                        .user(user)
-                                        .userOj(userOj) // 设置关联的OJ账号
-                                        .extOjPbInfo(info)
-                                        .ojName(getOjType())
-                                        .result(ProblemResult.AC)
-                                        .attemptTime(now)
-                                        .build();
-                                tries.add(utp);
-                            }
-                        } catch (Exception e) {
-                            logger.warn("解析HDU用户 {} 的某行提交记录时发生异常: {}", handle, e.getMessage());
+        // 逐个账号、逐个 handle 拉取；任一 handle 拉取失败都直接抛出，避免按部分结果推进账号水位线
+        List<AcceptedRow> accepted = new ArrayList<>();
+        for (UserOJ userOj : accounts) {
+            LocalDateTime since = userOj.getLastAttemptTime();
+            for (String handle : userOj.getAccountName().split("\\s*,\\s*")) {
+                if (StringUtils.isBlank(handle)) {
+                    continue;
+                }
+                String statusUrl = String.format(statusUrlTpl, handle.trim());
+                logger.info("调用 HDU user status 页面，url：{}", statusUrl);
+                crawlScheduler.throttle(getOjType());
+                Document doc = httpUtil.readJsoupURL(statusUrl);
+                Element table = doc.selectFirst("table.table_text");
+                if (table == null) {
+                    throw new CrawlerException(getOjType(), "未找到用户 " + handle + " 的提交记录表格");
+                }
+                for (Element row : table.select("tr")) {
+                    Elements cols = row.select("td");
+                    if (cols.size() > 5 && "Accepted".equalsIgnoreCase(cols.get(2).text().trim())) {
+                        String pid = cols.get(3).text().trim();
+                        LocalDateTime submitTime = parseSubmitTime(cols.get(1).text());
+                        if (submitTime == null) {
+                            logger.warn("HDU用户 {} 的提交时间无法解析，跳过该行: {}", handle, cols.get(1).text());
+                            continue;
                         }
+                        // 状态页按时间倒序，早于水位线的记录已入库
+                        if (since != null && submitTime.isBefore(since))
+                            break;
+                        accepted.add(new AcceptedRow(userOj, pid, submitTime));
                     }
-                } catch (Exception e) {
-                    logger.error("获取HDU用户 {} 提交记录时发生异常: {}", handle, e.getMessage());
                 }
             }
-            logger.info("HDU 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
-            return tries;
-        } catch (CrawlerException e) {
-            logger.error("HDU爬虫异常: {}", e.getMessage());
-            return Collections.emptyList();
-        } catch (Exception e) {
-            logger.error("获取HDU用户尝试记录时发生未知异常: {}", e.getMessage());
-            return Collections.emptyList();
+        }
+
+        // 已有题目直接取ID，缺失的逐个抓取详情后一次性写入
+        Map<String, Long> problemIds = problemUpsertService.resolve(getOjType(),
+                accepted.stream().map(AcceptedRow::pid).toList(), pid -> {
+                    try {
+                        ExtOjPbInfo p = fetchProblem(pid);
+                        return (p != null) ? ProblemUpsertService.toRow(p) : null;
+                    } catch (Exception e) {
+                        logger.error("获取HDU题目 {} 信息失败: {}", pid, e.getMessage());
+                        return null;
+                    }
+                });
+        List<UserTryProblem> tries = accepted.stream()
+                .filter(row -> problemIds.containsKey(row.pid()))
+                .map(row -> UserTryProblem.builder()
+                        .user(user)
+                        .userOj(row.account()) // 设置关联的OJ账号
+                        .extOjPbInfo(ProblemUpsertService.reference(problemIds.get(row.pid())))
+                        .ojName(getOjType())
+                        .result(ProblemResult.AC)
+                        .attemptTime(row.submitTime())
+                        .build())
+                .toList();
+        logger.info("HDU 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
+        return tries;
+    }
+
+    /**
+     * 状态页中的一条 Accepted 记录
+     */
+    private record AcceptedRow(UserOJ account, String pid, LocalDateTime submitTime) {
+    }
+
+    /**
+     * 解析状态页中的提交时间（yyyy-MM-dd HH:mm:ss），无法解析时返回 null
+     */
+    private LocalDateTime parseSubmitTime(String text) {
+        try {
+            return LocalDateTime.parse(text.trim(), SUBMIT_TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
         }
     }
 
@@ -189,18 +202,16 @@ public class HDUCrawler {
      * 批量获取题目信息
      */
     public List<ExtOjPbInfo> getAllPbInfo(int startId, int endId) {
-        List<ExtOjPbInfo> list = new ArrayList<>();
+        List<String> pids = new ArrayList<>();
         for (int i = startId; i <= endId; i++) {
-            String pid = String.valueOf(i);
-            ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                    .orElseGet(() -> {
-                        ExtOjPbInfo p = fetchProblem(pid);
-                        return (p != null) ? pbInfoRepo.save(p) : null;
-                    });
-            if (info != null)
-                list.add(info);
+            pids.add(String.valueOf(i));
         }
-        return list;
+        // 已有题目直接取ID，缺失的逐个抓取详情后一次性写入
+        Map<String, Long> ids = problemUpsertService.resolve(getOjType(), pids, pid -> {
+            ExtOjPbInfo p = fetchProblem(pid);
+            return (p != null) ? ProblemUpsertService.toRow(p) : null;
+        });
+        return pbInfoRepo.findAllById(ids.values());
     }
 
     /**
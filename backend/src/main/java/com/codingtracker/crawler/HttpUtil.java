@@ -1,34 +1,86 @@
 package com.codingtracker.crawler;
 
-import org.apache.commons.io.IOUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
- * HttpUtil：提供多种 HTTP 请求方式，包括原生 Java URL、Jsoup 及 HTTPS 支持。
- * 通过 repeatDo 方法重试调用，保证请求的可靠性。
+ * HttpUtil：基于共享 {@link HttpClient} 的 HTTP 请求工具。
+ * 所有请求复用同一连接池（keep-alive、HTTP/2 自动协商），避免每次请求重复 TLS 握手；
+ * 失败时按指数退避加随机抖动重试，并遵守服务端返回的 Retry-After。
+ * 同步方法在异步方法之上实现，二者行为一致。
+ * 每次请求（含重试）按目标主机和状态码记录耗时 crawler.http.requests，重试次数记入 crawler.http.retries。
  */
 @Component
 public class HttpUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpUtil.class);
 
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; CodingTracker)";
     /**
-     * 重试执行任务，直到返回非空结果或达到最大重试次数后抛出最后一次异常
+     * JDK 只内置 gzip/deflate 解码，brotli 需要额外依赖，因此不向服务端声明支持
+     */
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_BASE_MILLIS = 500;
+    private static final long BACKOFF_MAX_MILLIS = 30_000;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final MeterRegistry meterRegistry;
+
+    public HttpUtil(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * token 校验需要观察重定向本身，因此使用不跟随重定向的独立客户端
+     */
+    private final HttpClient noRedirectClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    /**
+     * 重试执行任务，直到返回非空结果或达到最大重试次数后抛出最后一次异常。
+     * 两次尝试之间按指数退避加随机抖动等待
      *
      * @param task  要执行的 Callable 任务
      * @param times 最大重试次数
@@ -48,82 +100,81 @@ public class HttpUtil {
                 lastEx = e;
                 logger.warn("第 {} 次执行失败，重试中...", i, e);
             }
+            if (i < times) {
+                TimeUnit.MILLISECONDS.sleep(backoffMillis(i));
+            }
         }
         throw lastEx;
     }
 
+    // ===================================== 异步接口
+
     /**
-     * 通过 Java 原生 URL 读取文本内容（UTF-8），最多重试 5 次
+     * 异步 GET 请求，返回响应文本
      *
      * @param urlString 请求地址
+     * @param cookies   要注入的 Cookie（key→value），可为 null
      * @return 响应文本
      */
-    public String readURL(String urlString) {
-        try {
-            return repeatDo(() -> {
-                logger.info("[*] readURL: {}", urlString);
-                return IOUtils.toString(new URL(urlString), "UTF-8");
-            }, 2);
-        } catch (Exception e) {
-            throw new RuntimeException("readURL 失败: " + urlString, e);
+    public CompletableFuture<String> readURLAsync(String urlString, Map<String, String> cookies) {
+        logger.info("[*] readURLAsync: {}", urlString);
+        return sendAsync(client, get(urlString, cookies).build(), 1).thenApply(HttpUtil::bodyAsString);
+    }
+
+    /**
+     * 异步 POST 请求，返回响应文本
+     *
+     * @param urlString 请求地址
+     * @param postData  POST数据
+     * @param headers   请求头
+     * @return 响应文本
+     */
+    public CompletableFuture<String> postURLAsync(String urlString, String postData, Map<String, String> headers) {
+        logger.info("[*] postURLAsync: {}", urlString);
+        HttpRequest.Builder builder = baseRequest(urlString)
+                .POST(HttpRequest.BodyPublishers.ofString(postData, StandardCharsets.UTF_8));
+        if (headers != null) {
+            headers.forEach(builder::setHeader);
         }
+        return sendAsync(client, builder.build(), 1).thenApply(HttpUtil::bodyAsString);
     }
 
+    // ===================================== 同步接口
+
     /**
-     * 使用 Jsoup 发起 GET 请求并解析为 Document，最多重试 5 次
+     * GET 请求读取文本内容
+     *
+     * @param urlString 请求地址
+     * @return 响应文本
+     */
+    public String readURL(String urlString) {
+        return readURL(urlString, null);
+    }
+
+    /**
+     * GET 请求并用 Jsoup 解析为 Document
      *
      * @param urlString 请求地址
      * @return 解析后的 Document
      */
     public Document readJsoupURL(String urlString) {
-        try {
-            return repeatDo(() -> {
-                logger.info("[*] readJsoupURL: {}", urlString);
-                return Jsoup.connect(urlString)
-                        .timeout(8000)
-                        .ignoreContentType(true)
-                        .get();
-            }, 2);
-        } catch (Exception e) {
-            throw new RuntimeException("readJsoupURL 失败: " + urlString, e);
-        }
+        return readJsoupURL(urlString, null);
     }
 
     /**
-     * 通过原生 HTTPS（HttpURLConnection）获取文本响应，最多重试 5 次
+     * HTTPS GET 请求，与 {@link #readURL(String)} 相同，保留以兼容旧调用
      *
      * @param urlString 请求地址
      * @return 响应文本
      */
     public String readHttpsURL(String urlString) {
-        try {
-            return repeatDo(() -> {
-                logger.info("[*] readHttpsURL: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setInstanceFollowRedirects(true);
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), "UTF-8"));
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
-                }
-                reader.close();
-                return sb.toString();
-            }, 2);
-        } catch (Exception e) {
-            throw new RuntimeException("readHttpsURL 失败: " + urlString, e);
-        }
+        return readURL(urlString, null);
     }
 
     // =====================================带cookie的
 
     /**
-     * 带 Cookie 的原生 URL GET 请求，最多重试 5 次
+     * 带 Cookie 的 GET 请求
      *
      * @param urlString 请求地址
      * @param cookies   要注入的 Cookie（key→value）
@@ -131,129 +182,70 @@ public class HttpUtil {
      */
     public String readURL(String urlString, Map<String, String> cookies) {
         try {
-            return repeatDo((Callable<String>) () -> {
-                logger.info("[*] readURL with cookies: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                // 拼装 Cookie 头
-                if (cookies != null && !cookies.isEmpty()) {
-                    String cookieHeader = cookies.entrySet().stream()
-                            .map(e -> e.getKey() + "=" + e.getValue())
-                            .collect(Collectors.joining("; "));
-                    conn.setRequestProperty("Cookie", cookieHeader);
-                }
-
-                try (InputStream in = conn.getInputStream()) {
-                    return IOUtils.toString(in, StandardCharsets.UTF_8);
-                }
-            }, 2);
+            return join(readURLAsync(urlString, cookies));
         } catch (Exception e) {
-            throw new RuntimeException("readURL with cookies 失败: " + urlString, e);
+            throw new RuntimeException("readURL 失败: " + urlString, e);
         }
     }
 
     /**
-     * 带 Cookie 的 Jsoup GET 请求，最多重试 5 次
+     * 带 Cookie 的 GET 请求并用 Jsoup 解析为 Document
      *
      * @param urlString 请求地址
      * @param cookies   要注入的 Cookie（key→value）
      * @return 解析后的 Document
      */
     public Document readJsoupURL(String urlString, Map<String, String> cookies) {
+        logger.info("[*] readJsoupURL: {}", urlString);
         try {
-            return repeatDo((Callable<Document>) () -> {
-                logger.info("[*] readJsoupURL with cookies: {}", urlString);
-                return Jsoup.connect(urlString)
-                        .timeout(8000)
-                        .ignoreContentType(true)
-                        .cookies(cookies == null ? Map.of() : cookies)
-                        .get();
-            }, 2);
+            HttpResponse<byte[]> response = join(sendAsync(client, get(urlString, cookies).build(), 1));
+            // 响应头未声明字符集时交给 Jsoup 根据 meta 标签识别（如 GBK 页面）
+            try (InputStream in = decodedBody(response)) {
+                return Jsoup.parse(in, declaredCharset(response), response.uri().toString());
+            }
         } catch (Exception e) {
-            throw new RuntimeException("readJsoupURL with cookies 失败: " + urlString, e);
+            throw new RuntimeException("readJsoupURL 失败: " + urlString, e);
         }
     }
 
     /**
-     * 带 Cookie 的原生 HTTPS GET 请求，最多重试 5 次
+     * 带 Cookie 的 HTTPS GET 请求，与 {@link #readURL(String, Map)} 相同，保留以兼容旧调用
      *
      * @param urlString 请求地址
      * @param cookies   要注入的 Cookie（key→value）
      * @return 响应文本
      */
     public String readHttpsURL(String urlString, Map<String, String> cookies) {
-        try {
-            return repeatDo((Callable<String>) () -> {
-                logger.info("[*] readHttpsURL with cookies: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setInstanceFollowRedirects(true);
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                // 拼装 Cookie 头
-                if (cookies != null && !cookies.isEmpty()) {
-                    String cookieHeader = cookies.entrySet().stream()
-                            .map(e -> e.getKey() + "=" + e.getValue())
-                            .collect(Collectors.joining("; "));
-                    conn.setRequestProperty("Cookie", cookieHeader);
-                }
-
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
-                }
-                reader.close();
-                return sb.toString();
-            }, 2);
-        } catch (Exception e) {
-            throw new RuntimeException("readHttpsURL with cookies 失败: " + urlString, e);
-        }
+        return readURL(urlString, cookies);
     }
 
     /**
-     * 检查URL的HTTP状态码（带Cookie），用于token验证
+     * 检查URL的HTTP状态码（带Cookie，不跟随重定向），用于token验证
      *
      * @param urlString 请求地址
      * @param cookies   要注入的 Cookie（key→value）
      * @return HTTP状态码
      */
     public int checkHttpStatus(String urlString, Map<String, String> cookies) {
+        logger.debug("[*] checkHttpStatus: {}", urlString);
+        HttpRequest request = get(urlString, cookies).build();
+        long start = System.nanoTime();
         try {
-            return repeatDo(() -> {
-                logger.debug("[*] checkHttpStatus: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-                conn.setInstanceFollowRedirects(false); // 不自动跟随重定向
-
-                // 拼装 Cookie 头
-                if (cookies != null && !cookies.isEmpty()) {
-                    String cookieHeader = cookies.entrySet().stream()
-                            .map(e -> e.getKey() + "=" + e.getValue())
-                            .collect(Collectors.joining("; "));
-                    conn.setRequestProperty("Cookie", cookieHeader);
-                }
-
-                int statusCode = conn.getResponseCode();
-                conn.disconnect();
-                return statusCode;
-            }, 2);
+            HttpResponse<Void> response = noRedirectClient.send(request, HttpResponse.BodyHandlers.discarding());
+            record(request, String.valueOf(response.statusCode()), start);
+            return response.statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 500;
         } catch (Exception e) {
+            record(request, "IO_ERROR", start);
             logger.error("checkHttpStatus 失败: {}", urlString, e);
             return 500; // 返回服务器错误状态码
         }
     }
 
     /**
-     * 带 Cookie 的 POST 请求，最多重试 5 次
+     * POST 请求
      *
      * @param urlString 请求地址
      * @param postData POST数据
@@ -262,33 +254,280 @@ public class HttpUtil {
      */
     public String postURL(String urlString, String postData, Map<String, String> headers) {
         try {
-            return repeatDo((Callable<String>) () -> {
-                logger.info("[*] postURL: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setRequestMethod("POST");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-                conn.setDoOutput(true);
-
-                // 设置请求头
-                if (headers != null) {
-                    for (Map.Entry<String, String> entry : headers.entrySet()) {
-                        conn.setRequestProperty(entry.getKey(), entry.getValue());
-                    }
+            return join(postURLAsync(urlString, postData, headers));
+        } catch (Exception e) {
+            throw new RuntimeException("postURL 失败: " + urlString, e);
+        }
+    }
+
+    // ===================================== 流式接口
+
+    /**
+     * 以流的方式消费响应体，供大响应边下载边解析使用
+     *
+     * @param <T> 解析结果类型
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * 带 Cookie 的 GET 请求，响应体（已解压）直接交给 reader 流式解析，不整体读入内存。
+     * 只有建立响应之前的失败会重试，reader 抛出的异常原样抛出
+     *
+     * @param urlString 请求地址
+     * @param cookies   要注入的 Cookie（key→value），可为 null
+     * @param reader    响应体解析器
+     * @return reader 的解析结果
+     */
+    public <T> T readURLStream(String urlString, Map<String, String> cookies, BodyReader<T> reader)
+            throws IOException {
+        logger.info("[*] readURLStream: {}", urlString);
+        return sendStreaming(get(urlString, cookies).build(), reader);
+    }
+
+    /**
+     * POST 请求，响应体（已解压）直接交给 reader 流式解析
+     *
+     * @param urlString 请求地址
+     * @param postData  POST数据
+     * @param headers   请求头
+     * @param reader    响应体解析器
+     * @return reader 的解析结果
+     */
+    public <T> T postURLStream(String urlString, String postData, Map<String, String> headers,
+            BodyReader<T> reader) throws IOException {
+        logger.info("[*] postURLStream: {}", urlString);
+        HttpRequest.Builder builder = baseRequest(urlString)
+                .POST(HttpRequest.BodyPublishers.ofString(postData, StandardCharsets.UTF_8));
+        if (headers != null) {
+            headers.forEach(builder::setHeader);
+        }
+        return sendStreaming(builder.build(), reader);
+    }
+
+    // ===================================== 内部实现
+
+    private <T> T sendStreaming(HttpRequest request, BodyReader<T> reader) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            HttpResponse<InputStream> response;
+            long start = System.nanoTime();
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("请求被中断: " + request.uri(), e);
+            } catch (IOException e) {
+                record(request, "IO_ERROR", start);
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
                 }
+                sleepBeforeRetry(request, attempt, e.getMessage(), backoffMillis(attempt));
+                continue;
+            }
 
-                // 写入POST数据
-                try (java.io.OutputStream os = conn.getOutputStream()) {
-                    byte[] input = postData.getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
+            int status = response.statusCode();
+            record(request, String.valueOf(status), start);
+            if (status < 400) {
+                InputStream body = response.body();
+                try (body; InputStream in = decode(body, response.headers())) {
+                    return reader.read(in);
                 }
+            }
+            response.body().close();
+            if ((status != 429 && status < 500) || attempt >= MAX_ATTEMPTS) {
+                throw new HttpStatusException(request.uri().toString(), status);
+            }
+            sleepBeforeRetry(request, attempt, "HTTP " + status, retryAfterMillis(response, attempt));
+        }
+    }
+
+    private void sleepBeforeRetry(HttpRequest request, int attempt, String reason, long delay)
+            throws IOException {
+        retryCounter(request).increment();
+        logger.warn("第 {} 次请求 {} 失败（{}），{} ms 后重试", attempt, request.uri(), reason, delay);
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("请求被中断: " + request.uri(), e);
+        }
+    }
+
+    private static HttpRequest.Builder baseRequest(String urlString) {
+        return HttpRequest.newBuilder(URI.create(urlString))
+                .timeout(REQUEST_TIMEOUT)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", ACCEPT_ENCODING);
+    }
+
+    private static HttpRequest.Builder get(String urlString, Map<String, String> cookies) {
+        HttpRequest.Builder builder = baseRequest(urlString).GET();
+        // 拼装 Cookie 头
+        if (cookies != null && !cookies.isEmpty()) {
+            String cookieHeader = cookies.entrySet().stream()
+                    .map(e -> e.getKey() + "=" + e.getValue())
+                    .collect(Collectors.joining("; "));
+            builder.header("Cookie", cookieHeader);
+        }
+        return builder;
+    }
+
+    /**
+     * 发送请求；网络异常、429 和 5xx 会按退避策略重试，其它非 2xx 状态直接失败
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpClient httpClient, HttpRequest request,
+            int attempt) {
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    record(request, error != null ? "IO_ERROR" : String.valueOf(response.statusCode()), start);
+                    if (error == null && response.statusCode() < 400) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    Throwable cause = error != null ? unwrap(error)
+                            : new HttpStatusException(request.uri().toString(), response.statusCode());
+                    boolean retryable = error != null
+                            || response.statusCode() == 429
+                            || response.statusCode() >= 500;
+                    if (!retryable || attempt >= MAX_ATTEMPTS) {
+                        return CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+                    }
+                    long delay = response != null ? retryAfterMillis(response, attempt) : backoffMillis(attempt);
+                    retryCounter(request).increment();
+                    logger.warn("第 {} 次请求 {} 失败（{}），{} ms 后重试", attempt, request.uri(),
+                            cause.getMessage(), delay);
+                    return CompletableFuture.supplyAsync(() -> null,
+                                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> sendAsync(httpClient, request, attempt + 1));
+                })
+                .thenCompose(f -> f);
+    }
 
-                try (InputStream in = conn.getInputStream()) {
-                    return IOUtils.toString(in, StandardCharsets.UTF_8);
+    /**
+     * 记录一次请求尝试的耗时；按主机区分平台，主机数量固定，标签基数可控
+     */
+    private void record(HttpRequest request, String status, long startNanos) {
+        Timer.builder("crawler.http.requests")
+                .description("抓取 HTTP 请求耗时（每次尝试一条）")
+                .tag("host", String.valueOf(request.uri().getHost()))
+                .tag("method", request.method())
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter retryCounter(HttpRequest request) {
+        return Counter.builder("crawler.http.retries")
+                .description("抓取 HTTP 请求的重试次数")
+                .tag("host", String.valueOf(request.uri().getHost()))
+                .register(meterRegistry);
+    }
+
+    /**
+     * 指数退避加随机抖动：设 cap = min(上限, base * 2^(attempt-1))，在 [cap/2, cap] 内随机取值
+     */
+    private static long backoffMillis(int attempt) {
+        long cap = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    /**
+     * 解析 Retry-After（秒数或 HTTP 日期），缺失或无法解析时退回指数退避
+     */
+    private static long retryAfterMillis(HttpResponse<?> response, int attempt) {
+        return response.headers().firstValue("Retry-After").map(value -> {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+                } catch (Exception ignored) {
+                    return backoffMillis(attempt);
                 }
-            }, 2);
-        } catch (Exception e) {
-            throw new RuntimeException("postURL 失败: " + urlString, e);
+            }
+        }).map(ms -> Math.min(ms, BACKOFF_MAX_MILLIS)).orElseGet(() -> backoffMillis(attempt));
+    }
+
+    /**
+     * 按 Content-Encoding 解压并按 Content-Type 中的字符集解码，保留原始换行
+     */
+    private static String bodyAsString(HttpResponse<byte[]> response) {
+        try (InputStream in = decodedBody(response)) {
+            return new String(in.readAllBytes(), charsetOf(response));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static InputStream decodedBody(HttpResponse<byte[]> response) throws IOException {
+        return decode(new ByteArrayInputStream(response.body()), response.headers());
+    }
+
+    private static InputStream decode(InputStream raw, HttpHeaders headers) throws IOException {
+        String encoding = headers.firstValue("Content-Encoding").orElse("")
+                .trim().toLowerCase(Locale.ROOT);
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(raw);
+            case "deflate" -> new InflaterInputStream(raw);
+            default -> raw;
+        };
+    }
+
+    private static Charset charsetOf(HttpResponse<?> response) {
+        String name = declaredCharset(response);
+        if (name != null) {
+            try {
+                return Charset.forName(name);
+            } catch (Exception ignored) {
+                // 未知字符集按 UTF-8 处理
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String declaredCharset(HttpResponse<?> response) {
+        String type = response.headers().firstValue("Content-Type").orElse("");
+        for (String part : type.split(";")) {
+            String p = part.trim();
+            if (p.regionMatches(true, 0, "charset=", 0, 8)) {
+                return p.substring(8).replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            throw cause instanceof Exception ex ? ex : e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * 非 2xx/3xx 响应
+     */
+    public static class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        public HttpStatusException(String url, int statusCode) {
+            super("HTTP " + statusCode + ": " + url);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
         }
     }
 }
@@ -1,12 +1,13 @@
 package com.codingtracker.crawler;
 
+import com.codingtracker.crawler.LeetCodeProgressParser.LeetCodeQuestion;
 import com.codingtracker.exception.CrawlerException;
 import com.codingtracker.exception.TokenExpiredException;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
-import com.codingtracker.repository.ProblemTagRepository;
-import com.codingtracker.repository.TagRepository;
+import com.codingtracker.repository.ProblemTagRepository.ProblemRow;
+import com.codingtracker.service.ProblemUpsertService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.common.util.StringUtils;
@@ -22,7 +23,6 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -42,13 +42,13 @@ public class LeetCodeCrawler {
     private ExtOjPbInfoRepository extOjPbInfoRepository;
 
     @Autowired
-    private TagRepository tagRepository;
+    private ExtOjLinkDataLoader extOjLinkDataLoader;
 
     @Autowired
-    private ExtOjLinkRepository extOjLinkRepository;
+    private ProblemUpsertService problemUpsertService;
 
     @Autowired
-    private ProblemTagRepository problemTagRepository;
+    private CrawlScheduler crawlScheduler;
 
     public OJPlatform getOjType() {
         return OJPlatform.LEETCODE;
@@ -143,7 +143,7 @@ public class LeetCodeCrawler {
         }
 
         try {
-            ExtOjLink ojLink = extOjLinkRepository.findById(getOjType())
+            ExtOjLink ojLink = extOjLinkDataLoader.find(getOjType())
                     .orElseThrow(() -> new CrawlerException(getOjType(), "Missing link config for " + getOjType()));
 
             String userInfoTemplate = ojLink.getUserInfoLink();
@@ -201,206 +201,155 @@ public class LeetCodeCrawler {
      */
     @Transactional
     public List<UserTryProblem> userTryProblems(User user) {
-        try {
-            // 1. 获取 OJ 配置
-            ExtOjLink ojLink = extOjLinkRepository.findById(getOjType())
-                    .orElseThrow(() -> new CrawlerException(getOjType(), "Missing link config for " + getOjType()));
-            String submissionTemplate = ojLink.getUserInfoLink();
-            String problemPageTemplate = ojLink.getProblemLink();
-            Map<String, String> cookies = parseCookies(ojLink.getAuthToken());
-
-            // 2. 收集所有用户名
-            List<String> usernames = user.getOjAccounts().stream()
-                    .filter(uo -> uo.getPlatform() == getOjType())
-                    .map(UserOJ::getAccountName)
-                    .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
-                    .filter(StringUtils::isNotBlank)
-                    .toList();
-            if (usernames.isEmpty()) {
-                logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-                return Collections.emptyList();
-            }
-
-            // 3. 获取所有提交记录
-            List<JsonNode> submissions = new ArrayList<>();
-            for (String username : usernames) {
-                try {
-                    // 找到对应的UserOJ实体
-                    UserOJ userOj = user.getOjAccounts().stream()
-                            .filter(uo -> uo.getPlatform() == getOjType() && uo.getAccountName().equals(username))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (userOj == null) {
-                        logger.warn("未找到用户 {} 的 {} 平台账号: {}", user.getUsername(), getOjType(), username);
-                        continue;
-                    }
-
-                    // 构建GraphQL查询（可以分页，但我不分）
-                    String graphqlQuery = """
-                            {
-                              "query": "query userProgressQuestionList($filters: UserProgressQuestionListInput) { userProgressQuestionList(filters: $filters) { totalNum questions { translatedTitle frontendId title titleSlug difficulty lastSubmittedAt numSubmitted questionStatus lastResult topicTags { name nameTranslated slug } } } }",
-                              "variables": {
-                                "filters": {
-                                  "skip": 0,
-                                  "limit": 10000
-                                }
-                              },
-                              "operationName": "userProgressQuestionList"
-                            }
-                            """;
-
-                    // 构建请求头
-                    Map<String, String> headers = new HashMap<>();
-                    headers.put("Content-Type", "application/json");
-                    headers.put("Accept", "application/json");
-                    headers.put("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-                    headers.put("Origin", "https://leetcode.cn");
-                    headers.put("Referer", "https://leetcode.cn/");
-                    
-                    // 添加Cookie
-                    String sessionValue = cookies.get("LEETCODE_SESSION");
-                    if (sessionValue != null) {
-                        headers.put("Cookie", "LEETCODE_SESSION=" + sessionValue);
-                    }
+        // 1. 获取 OJ 配置
+        ExtOjLink ojLink = extOjLinkDataLoader.find(getOjType())
+                .orElseThrow(() -> new CrawlerException(getOjType(), "Missing link config for " + getOjType()));
+        String submissionTemplate = ojLink.getUserInfoLink();
+        String problemPageTemplate = ojLink.getProblemLink();
+        Map<String, String> cookies = parseCookies(ojLink.getAuthToken());
+
+        // 2. 收集所有账号
+        List<UserOJ> accounts = user.getOjAccounts().stream()
+                .filter(uo -> uo.getPlatform() == getOjType())
+                .filter(uo -> StringUtils.isNotBlank(uo.getAccountName()))
+                .toList();
+        if (accounts.isEmpty()) {
+            logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
+            return Collections.emptyList();
+        }
 
-                    // 发送POST请求
-                    String response = httpUtil.postURL(submissionTemplate, graphqlQuery, headers);
-                    JsonNode root = mapper.readTree(response);
-
-                    // 检查认证状态
-                    if (root.has("errors")) {
-                        JsonNode errors = root.path("errors");
-                        if (errors.isArray() && !errors.isEmpty()) {
-                            String errorMsg = errors.get(0).path("message").asText("Unknown error");
-                            if (errorMsg.contains("not authenticated") || errorMsg.contains("unauthorized")) {
-                                throw new TokenExpiredException(getOjType(), "LeetCode认证token已失效，请重新登录");
+        // 3. 逐个账号、逐个用户名获取提交记录；任一用户名拉取失败都直接抛出，避免按部分结果推进账号水位线
+        List<AccountQuestion> submissions = new ArrayList<>();
+        for (UserOJ userOj : accounts) {
+            for (String username : userOj.getAccountName().split("\\s*,\\s*")) {
+                if (StringUtils.isBlank(username)) {
+                    continue;
+                }
+                // 构建GraphQL查询（可以分页，但我不分）
+                String graphqlQuery = """
+                        {
+                          "query": "query userProgressQuestionList($filters: UserProgressQuestionListInput) { userProgressQuestionList(filters: $filters) { totalNum questions { translatedTitle frontendId title titleSlug difficulty lastSubmittedAt numSubmitted questionStatus lastResult topicTags { name nameTranslated slug } } } }",
+                          "variables": {
+                            "filters": {
+                              "skip": 0,
+                              "limit": 10000
                             }
+                          },
+                          "operationName": "userProgressQuestionList"
                         }
-                        logger.warn("获取用户 {} 提交记录失败: {}", username, errors);
-                        continue;
-                    }
+                        """;
+
+                // 构建请求头
+                Map<String, String> headers = new HashMap<>();
+                headers.put("Content-Type", "application/json");
+                headers.put("Accept", "application/json");
+                headers.put("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
+                headers.put("Origin", "https://leetcode.cn");
+                headers.put("Referer", "https://leetcode.cn/");
+                
+                // 添加Cookie
+                String sessionValue = cookies.get("LEETCODE_SESSION");
+                if (sessionValue != null) {
+                    headers.put("Cookie", "LEETCODE_SESSION=" + sessionValue);
+                }
 
-                    JsonNode data = root.path("data").path("userProgressQuestionList");
-                    if (!data.isMissingNode()) {
-                        JsonNode questions = data.path("questions");
-                        if (questions.isArray()) {
-                            for (JsonNode question : questions) {
-                                // 在question节点中添加userOj信息（临时存储，用于后续处理）
-                                ((com.fasterxml.jackson.databind.node.ObjectNode) question).put("userOjId", userOj.getId());
-                                submissions.add(question);
-                            }
-                        }
-                    }
-                } catch (TokenExpiredException e) {
-                    // 重新抛出token失效异常，让全局异常处理器处理
-                    throw e;
+                // 发送POST请求
+                crawlScheduler.throttle(getOjType());
+                // 响应边下载边解析，先放入临时列表，确认无错误后再并入结果
+                List<AccountQuestion> questions = new ArrayList<>();
+                LeetCodeProgressParser.Page page;
+                try {
+                    page = httpUtil.postURLStream(submissionTemplate, graphqlQuery, headers,
+                            in -> LeetCodeProgressParser.parse(in, q -> questions.add(new AccountQuestion(userOj, q))));
                 } catch (IOException e) {
-                    logger.error("获取用户 {} 提交记录网络请求失败: {}", username, e.getMessage());
-                } catch (Exception e) {
-                    logger.error("获取用户 {} 提交记录时发生异常: {}", username, e.getMessage());
+                    throw new CrawlerException(getOjType(), "获取用户 " + username + " 提交记录网络请求失败: " + e.getMessage(), e);
                 }
-            }
 
-            if (submissions.isEmpty()) {
-                logger.info("用户 {} 在 {} 平台没有提交记录", user.getUsername(), getOjType());
-                return Collections.emptyList();
+                // 检查认证状态
+                if (!page.errors().isEmpty()) {
+                    String errorMsg = page.errors().get(0);
+                    if (errorMsg.contains("not authenticated") || errorMsg.contains("unauthorized")) {
+                        throw new TokenExpiredException(getOjType(), "LeetCode认证token已失效，请重新登录");
+                    }
+                    throw new CrawlerException(getOjType(), "获取用户 " + username + " 提交记录失败: " + page.errors());
+                }
+                submissions.addAll(questions);
             }
+        }
 
-            // 4. 批量收集题目ID和标签
-            Set<String> allPids = new HashSet<>();
-            Map<String, String> pidToTitle = new HashMap<>();
-            for (JsonNode sub : submissions) {
-                String titleSlug = sub.path("titleSlug").asText();
-                String title = sub.path("title").asText();
-                allPids.add(titleSlug);
-                pidToTitle.put(titleSlug, title);
-            }
+        if (submissions.isEmpty()) {
+            logger.info("用户 {} 在 {} 平台没有提交记录", user.getUsername(), getOjType());
+            return Collections.emptyList();
+        }
 
-            // 5. 批量查询已有题目信息
-            List<ExtOjPbInfo> existInfos = extOjPbInfoRepository.findByOjNameAndPidIn(getOjType(), allPids);
-            Map<String, ExtOjPbInfo> infosMap = existInfos.stream()
-                    .collect(Collectors.toMap(ExtOjPbInfo::getPid, Function.identity()));
-
-            // 6. 批量插入缺失的题目
-            List<ExtOjPbInfo> newInfos = allPids.stream()
-                    .filter(pid -> !infosMap.containsKey(pid))
-                    .map(pid -> {
-                        String url = String.format(problemPageTemplate, pid);
-                        return ExtOjPbInfo.builder()
-                                .ojName(getOjType())
-                                .pid(pid)
-                                .name(pidToTitle.getOrDefault(pid, ""))
-                                .url(url)
-                                .points(null)
-                                .tags(new HashSet<>())
-                                .build();
-                    })
-                    .toList();
-
-            if (!newInfos.isEmpty()) {
-                extOjPbInfoRepository.saveAll(newInfos);
-                newInfos.forEach(e -> infosMap.put(e.getPid(), e));
-            }
+        // 4. 批量收集题目ID和标签
+        Set<String> allPids = new HashSet<>();
+        Map<String, String> pidToTitle = new HashMap<>();
+        for (AccountQuestion aq : submissions) {
+            LeetCodeQuestion q = aq.question();
+            allPids.add(q.titleSlug());
+            pidToTitle.put(q.titleSlug(), q.title());
+        }
 
-            // 7. 构造并返回尝试记录
-            List<UserTryProblem> tries = submissions.stream()
-                    .map(sub -> {
-                        String titleSlug = sub.path("titleSlug").asText();
-                        String lastSubmittedAt = sub.path("lastSubmittedAt").asText();
-                        
-                        // 解析包含时区信息的时间格式
-                        LocalDateTime attemptTime;
+        // 5. 批量写入题目，一次拿回全部题目ID
+        List<ProblemRow> rows = allPids.stream()
+                .map(pid -> new ProblemRow(pid, pidToTitle.getOrDefault(pid, ""), null, null,
+                        String.format(problemPageTemplate, pid)))
+                .toList();
+        Map<String, Long> problemIds = problemUpsertService.upsert(getOjType(), rows);
+
+        // 6. 构造并返回尝试记录
+        List<UserTryProblem> tries = submissions.stream()
+                .filter(aq -> problemIds.containsKey(aq.question().titleSlug()))
+                .map(aq -> {
+                    LeetCodeQuestion q = aq.question();
+                    String titleSlug = q.titleSlug();
+                    String lastSubmittedAt = q.lastSubmittedAt();
+                    
+                    // 解析包含时区信息的时间格式
+                    LocalDateTime attemptTime;
+                    try {
+                        // 尝试解析ISO 8601格式（包含时区信息）
+                        ZonedDateTime zonedDateTime = ZonedDateTime.parse(lastSubmittedAt);
+                        attemptTime = zonedDateTime.toLocalDateTime();
+                    } catch (Exception e) {
+                        // 如果解析失败，尝试移除时区信息后解析
                         try {
-                            // 尝试解析ISO 8601格式（包含时区信息）
-                            ZonedDateTime zonedDateTime = ZonedDateTime.parse(lastSubmittedAt);
-                            attemptTime = zonedDateTime.toLocalDateTime();
-                        } catch (Exception e) {
-                            // 如果解析失败，尝试移除时区信息后解析
-                            try {
-                                String cleanTime = lastSubmittedAt.replaceAll("\\+\\d{2}:?\\d{2}$", "").replace("Z", "");
-                                attemptTime = LocalDateTime.parse(cleanTime);
-                            } catch (Exception e2) {
-                                logger.warn("无法解析时间格式: {}, 使用当前时间", lastSubmittedAt);
-                                attemptTime = LocalDateTime.now();
-                            }
+                            String cleanTime = lastSubmittedAt.replaceAll("\\+\\d{2}:?\\d{2}$", "").replace("Z", "");
+                            attemptTime = LocalDateTime.parse(cleanTime);
+                        } catch (Exception e2) {
+                            logger.warn("无法解析时间格式: {}, 跳过题目 {}", lastSubmittedAt, titleSlug);
+                            return null;
                         }
+                    }
 
-                        // 获取关联的UserOJ实体
-                        Integer userOjId = sub.path("userOjId").asInt();
-                        UserOJ userOj = user.getOjAccounts().stream()
-                                .filter(uo -> uo.getId().equals(userOjId))
-                                .findFirst()
-                                .orElse(null);
-
-                        // 获取提交结果
-                        String lastResult = sub.path("lastResult").asText();
-                        ProblemResult result = "AC".equals(lastResult) ? ProblemResult.AC : ProblemResult.WA;
-
-                        return UserTryProblem.builder()
-                                .user(user)
-                                .userOj(userOj) // 设置关联的OJ账号
-                                .extOjPbInfo(infosMap.get(titleSlug))
-                                .ojName(getOjType())
-                                .result(result)
-                                .attemptTime(attemptTime)
-                                .build();
-                    })
-                    .filter(utp -> utp.getExtOjPbInfo() != null)
-                    .toList();
-
-            logger.info("用户 {} 共抓取 {} 条LeetCode尝试记录", user.getUsername(), tries.size());
-            return tries;
-        } catch (TokenExpiredException e) {
-            // 重新抛出token失效异常
-            throw e;
-        } catch (CrawlerException e) {
-            logger.error("LeetCode爬虫异常: {}", e.getMessage());
-            return Collections.emptyList();
-        } catch (Exception e) {
-            logger.error("获取LeetCode用户尝试记录时发生未知异常: {}", e.getMessage());
-            return Collections.emptyList();
-        }
+                    // 获取提交结果
+                    ProblemResult result = "AC".equals(q.lastResult()) ? ProblemResult.AC : ProblemResult.WA;
+
+                    return UserTryProblem.builder()
+                            .user(user)
+                            .userOj(aq.account()) // 设置关联的OJ账号
+                            .extOjPbInfo(ProblemUpsertService.reference(problemIds.get(titleSlug)))
+                            .ojName(getOjType())
+                            .result(result)
+                            .attemptTime(attemptTime)
+                            .build();
+                })
+                .filter(Objects::nonNull)
+                // 题目列表无法按时间分页，只能在本地丢弃水位线之前的记录
+                .filter(utp -> utp.getUserOj() == null
+                        || utp.getUserOj().getLastAttemptTime() == null
+                        || !utp.getAttemptTime().isBefore(utp.getUserOj().getLastAttemptTime()))
+                .toList();
+
+        logger.info("用户 {} 共抓取 {} 条LeetCode尝试记录", user.getUsername(), tries.size());
+        return tries;
+    }
+
+    /**
+     * 题目进度及其所属账号
+     */
+    private record AccountQuestion(UserOJ account, LeetCodeQuestion question) {
     }
 
     /**
@@ -430,27 +379,16 @@ public class LeetCodeCrawler {
         }
 
         try {
-            List<ExtOjPbInfo> list = new ArrayList<>();
-            ExtOjLink ojLink = extOjLinkRepository.findById(getOjType())
+            ExtOjLink ojLink = extOjLinkDataLoader.find(getOjType())
                     .orElseThrow(() -> new CrawlerException(getOjType(), "Missing link config for " + getOjType()));
             String problemPageTemplate = ojLink.getProblemLink();
 
-            for (String titleSlug : titleSlugs) {
-                ExtOjPbInfo info = extOjPbInfoRepository.findByOjNameAndPid(getOjType(), titleSlug)
-                        .orElseGet(() -> {
-                            try {
-                                ExtOjPbInfo newInfo = fetchProblem(titleSlug, problemPageTemplate);
-                                return newInfo != null ? extOjPbInfoRepository.save(newInfo) : null;
-                            } catch (Exception e) {
-                                logger.error("获取LeetCode题目 {} 信息失败: {}", titleSlug, e.getMessage());
-                                return null;
-                            }
-                        });
-                if (info != null) {
-                    list.add(info);
-                }
-            }
-            return list;
+            // 已有题目直接取ID，缺失的逐个抓取详情后一次性写入
+            Map<String, Long> ids = problemUpsertService.resolve(getOjType(), titleSlugs, titleSlug -> {
+                ExtOjPbInfo newInfo = fetchProblem(titleSlug, problemPageTemplate);
+                return newInfo != null ? ProblemUpsertService.toRow(newInfo) : null;
+            });
+            return extOjPbInfoRepository.findAllById(ids.values());
         } catch (Exception e) {
             logger.error("批量获取LeetCode题目信息时发生异常: {}", e.getMessage());
             return Collections.emptyList();
@@ -465,7 +403,7 @@ public class LeetCodeCrawler {
             String url = String.format(problemPageTemplate, titleSlug);
             logger.info("调用 LeetCode 题目详情页面，url：{}", url);
 
-            ExtOjLink ojLink = extOjLinkRepository.findById(getOjType()).orElse(null);
+            ExtOjLink ojLink = extOjLinkDataLoader.find(getOjType()).orElse(null);
             Map<String, String> cookies = ojLink != null ? parseCookies(ojLink.getAuthToken()) : Map.of();
 
             String response = httpUtil.readURL(url, cookies);
@@ -0,0 +1,132 @@
+package com.codingtracker.crawler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * LeetCode userProgressQuestionList GraphQL 响应的流式解析器。
+ * 逐题读取 data.userProgressQuestionList.questions，只保留爬虫需要的字段，不构建 JsonNode 树。
+ */
+public final class LeetCodeProgressParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private LeetCodeProgressParser() {
+    }
+
+    /**
+     * 精简后的做题进度记录
+     *
+     * @param titleSlug       题目 slug
+     * @param title           题目名称
+     * @param lastSubmittedAt 最近提交时间（ISO 8601）
+     * @param lastResult      最近提交结果
+     */
+    public record LeetCodeQuestion(String titleSlug, String title, String lastSubmittedAt, String lastResult) {
+    }
+
+    /**
+     * 一次响应的解析摘要
+     *
+     * @param errors GraphQL errors 中的 message，无错误时为空
+     * @param count  交给 sink 的题目数
+     */
+    public record Page(List<String> errors, int count) {
+    }
+
+    /**
+     * 解析响应，将题目依次交给 sink
+     *
+     * @param in   响应体
+     * @param sink 题目消费者
+     * @return 解析摘要
+     */
+    public static Page parse(InputStream in, Consumer<LeetCodeQuestion> sink) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("LeetCode 响应不是 JSON 对象");
+            }
+            List<String> errors = new ArrayList<>();
+            int count = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("errors".equals(field) && value == JsonToken.START_ARRAY) {
+                    readErrors(p, errors);
+                } else if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    count += readData(p, sink);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return new Page(errors, count);
+        }
+    }
+
+    private static void readErrors(JsonParser p, List<String> errors) throws IOException {
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String message = "Unknown error";
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if ("message".equals(field)) {
+                    message = p.getText();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            errors.add(message);
+        }
+    }
+
+    private static int readData(JsonParser p, Consumer<LeetCodeQuestion> sink) throws IOException {
+        int count = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if (!"userProgressQuestionList".equals(field) || value != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String listField = p.currentName();
+                JsonToken listValue = p.nextToken();
+                if (!"questions".equals(listField) || listValue != JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    sink.accept(readQuestion(p));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static LeetCodeQuestion readQuestion(JsonParser p) throws IOException {
+        String titleSlug = "";
+        String title = "";
+        String lastSubmittedAt = "";
+        String lastResult = "";
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "titleSlug" -> titleSlug = p.getValueAsString("");
+                case "title" -> title = p.getValueAsString("");
+                case "lastSubmittedAt" -> lastSubmittedAt = p.getValueAsString("");
+                case "lastResult" -> lastResult = p.getValueAsString("");
+                default -> p.skipChildren();
+            }
+        }
+        return new LeetCodeQuestion(titleSlug, title, lastSubmittedAt, lastResult);
+    }
+}
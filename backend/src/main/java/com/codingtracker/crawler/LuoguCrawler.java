@@ -1,12 +1,14 @@
 package com.codingtracker.crawler;
 
+import com.codingtracker.dto.TagMetaDTO;
 import com.codingtracker.exception.CrawlerException;
 import com.codingtracker.exception.TokenExpiredException;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.init.TagMetaLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
-import com.codingtracker.repository.TagRepository;
+import com.codingtracker.repository.ProblemTagRepository.ProblemRow;
+import com.codingtracker.service.ProblemUpsertService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.common.util.StringUtils;
@@ -23,7 +25,6 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -42,17 +43,20 @@ public class LuoguCrawler {
     private HttpUtil httpUtil;
 
     @Autowired
-    private ExtOjLinkRepository linkRepo;
+    private ExtOjLinkDataLoader extOjLinkDataLoader;
 
     @Autowired
     private ExtOjPbInfoRepository pbInfoRepo;
 
     @Autowired
-    private TagRepository tagRepo;
+    private ProblemUpsertService problemUpsertService;
 
     @Autowired
     private TagMetaLoader tagMetaLoader;
 
+    @Autowired
+    private CrawlScheduler crawlScheduler;
+
     /**
      * 本爬虫对应的平台类型
      */
@@ -81,7 +85,7 @@ public class LuoguCrawler {
      */
     public boolean validateConnection(Map<String, String> cookies) {
         try {
-            ExtOjLink link = linkRepo.findById(getOjType()).orElse(null);
+            ExtOjLink link = extOjLinkDataLoader.find(getOjType()).orElse(null);
             if (link == null || link.getLoginPageLink() == null) {
                 logger.warn("洛谷平台链接配置不完整");
                 return false;
@@ -116,11 +120,11 @@ public class LuoguCrawler {
     }
 
     /**
-     * 拉取单个 Luogu 题目信息并构建实体
+     * 拉取单个 Luogu 题目信息并构建写入行
      */
-    public ExtOjPbInfo fetchProblem(String pid) {
+    public ProblemRow fetchProblem(String pid) {
         try {
-            ExtOjLink link = linkRepo.findById(getOjType())
+            ExtOjLink link = extOjLinkDataLoader.find(getOjType())
                     .orElseThrow(() -> new CrawlerException(getOjType(), "Missing Luogu link config"));
             String url = String.format(link.getProblemLink(), pid);
             Map<String, String> cookies = parseCookies(link.getAuthToken());
@@ -163,33 +167,15 @@ public class LuoguCrawler {
             List<Integer> tagIds = new ArrayList<>();
             problemNode.path("tags").forEach(n -> tagIds.add(n.asInt()));
 
-            // 4) 使用 TagMetaLoader 从内存中映射出每个 TagMetaDTO，然后存库
-            Set<Tag> tags = new HashSet<>();
-            try {
-                tags = tagIds.stream()
-                        .map(tagMetaLoader::get) // 从内存 Map 拿 DTO
-                        .filter(Objects::nonNull)
-                        .map(dto -> tagRepo
-                                .findByName(dto.getName()) // 先按 name 查
-                                .orElseGet(() -> tagRepo.save(
-                                        Tag.builder()
-                                                .name(dto.getName())
-                                                .build())))
-                        .collect(Collectors.toSet());
-            } catch (Exception e) {
-                logger.warn("处理Luogu题目 {} 的标签时发生异常: {}", pid, e.getMessage());
-            }
+            // 4) 使用 TagMetaLoader 从内存中映射出每个标签名，随题目一起批量写入
+            List<String> tags = tagIds.stream()
+                    .map(tagMetaLoader::get) // 从内存 Map 拿 DTO
+                    .filter(Objects::nonNull)
+                    .map(TagMetaDTO::getName)
+                    .toList();
 
             // 5) 构建并返回
-            return ExtOjPbInfo.builder()
-                    .ojName(getOjType())
-                    .pid(pid)
-                    .name(title)
-                    .type("PROGRAMMING")
-                    .points(null)
-                    .url(url)
-                    .tags(tags)
-                    .build();
+            return new ProblemRow(pid, title, "PROGRAMMING", null, url, tags);
 
         } catch (TokenExpiredException e) {
             // 重新抛出token失效异常
@@ -202,35 +188,42 @@ public class LuoguCrawler {
 
     @Transactional
     public List<UserTryProblem> userTryProblems(User user) {
-        try {
-            // 1. 获取 Luogu 链接配置
-            ExtOjLink link = linkRepo.findById(getOjType())
-                    .orElseThrow(() -> new CrawlerException(getOjType(), "Missing Luogu link config"));
-            String userInfoTemplate = link.getUserInfoLink();
-            String problemPageTemplate = link.getProblemLink();
-            Map<String, String> cookies = parseCookies(link.getAuthToken());
-
-            // 2. 收集所有 uid
-            List<String> uids = user.getOjAccounts().stream()
-                    .filter(uo -> uo.getPlatform() == getOjType())
-                    .map(UserOJ::getAccountName)
-                    .flatMap(s -> Arrays.stream(s.split("\\s*,\\s*")))
-                    .filter(StringUtils::isNotBlank)
-                    .toList();
-            if (uids.isEmpty()) {
-                logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-                return Collections.emptyList();
-            }
+        // 1. 获取 Luogu 链接配置
+        ExtOjLink link = extOjLinkDataLoader.find(getOjType())
+                .orElseThrow(() -> new CrawlerException(getOjType(), "Missing Luogu link config"));
+        String userInfoTemplate = link.getUserInfoLink();
+        String problemPageTemplate = link.getProblemLink();
+        Map<String, String> cookies = parseCookies(link.getAuthToken());
+
+        // 2. 按账号收集所有 uid
+        List<UserOJ> accounts = user.getOjAccounts().stream()
+                .filter(uo -> uo.getPlatform() == getOjType())
+                .filter(uo -> StringUtils.isNotBlank(uo.getAccountName()))
+                .toList();
+        if (accounts.isEmpty()) {
+            logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
+            return Collections.emptyList();
+        }
 
-            // 3. 拉取所有提交记录（分页）
-            List<JsonNode> allRecs = new ArrayList<>();
-            for (String uid : uids) {
+        // 3. 拉取提交记录（分页，按时间倒序；有水位线时翻到水位线之前即停止）
+        List<JsonNode> allRecs = new ArrayList<>();
+        Map<JsonNode, UserOJ> recAccounts = new IdentityHashMap<>();
+        for (UserOJ account : accounts) {
+            long since = account.getLastAttemptTime() == null
+                    ? -1
+                    : account.getLastAttemptTime().toEpochSecond(ZoneOffset.UTC);
+            for (String uid : account.getAccountName().split("\\s*,\\s*")) {
+                if (StringUtils.isBlank(uid)) {
+                    continue;
+                }
                 int page = 1;
                 int consecutiveErrors = 0;
-                while (consecutiveErrors < 3) { // 连续3次错误则停止该用户
+                boolean reachedWatermark = false;
+                while (consecutiveErrors < 3 && !reachedWatermark) { // 同一页连续3次错误则放弃
                     String url = String.format(userInfoTemplate, uid, page);
                     logger.info("调用 Luogu 用户 AC 接口，url：{}", url);
                     try {
+                        crawlScheduler.throttle(getOjType());
                         String json = httpUtil.readURL(url, cookies);
 
                         // 检查返回内容是否为HTML（可能是登录页面）
@@ -257,7 +250,14 @@ public class LuoguCrawler {
                         if (!arr.isArray() || arr.isEmpty()) {
                             break; // 没有更多数据
                         }
-                        arr.forEach(allRecs::add);
+                        for (JsonNode rec : arr) {
+                            if (rec.path("submitTime").asLong() < since) {
+                                reachedWatermark = true;
+                                break;
+                            }
+                            allRecs.add(rec);
+                            recAccounts.put(rec, account);
+                        }
                         page++;
                         consecutiveErrors = 0; // 重置错误计数
                     } catch (TokenExpiredException e) {
@@ -271,110 +271,67 @@ public class LuoguCrawler {
                         consecutiveErrors++;
                     }
                 }
-            }
-            if (allRecs.isEmpty()) {
-                logger.info("用户 {} 在 {} 平台没有提交记录", user.getUsername(), getOjType());
-                return Collections.emptyList();
-            }
-
-            // 4. 收集所有 PID，并批量查询题目信息
-            Set<String> allPids = allRecs.stream()
-                    .map(r -> r.path("problem").path("pid").asText())
-                    .collect(Collectors.toSet());
-            List<ExtOjPbInfo> existInfos = pbInfoRepo.findAllByOjNameAndPidIn(getOjType(), allPids);
-            Map<String, ExtOjPbInfo> infoMap = existInfos.stream()
-                    .collect(Collectors.toMap(ExtOjPbInfo::getPid, Function.identity()));
-
-            // 5. 只处理不存在的题目，避免重复插入
-            Set<String> missingPids = allPids.stream()
-                    .filter(pid -> !infoMap.containsKey(pid))
-                    .collect(Collectors.toSet());
-
-            List<ExtOjPbInfo> toInsert = new ArrayList<>();
-            List<ExtOjPbInfo> toUpdate = new ArrayList<>();
-            List<UserTryProblem> tries = new ArrayList<>();
-
-            // 6. 构建或更新题目信息，并准备尝试记录
-            for (JsonNode rec : allRecs) {
-                int status = rec.path("status").asInt();
-                ProblemResult result = LuoguProblemResultMapping.fromCode(status);
-
-                String pid = rec.path("problem").path("pid").asText();
-                String title = rec.path("problem").path("title").asText();
-                long secs = rec.path("submitTime").asLong();
-                LocalDateTime attemptTime = LocalDateTime.ofEpochSecond(secs, 0, ZoneOffset.UTC);
-
-                ExtOjPbInfo info = infoMap.get(pid);
-                if (info == null && missingPids.contains(pid)) {
-                    // 新题目：初始化 tags 保持为空
-                    info = ExtOjPbInfo.builder()
-                            .ojName(getOjType())
-                            .pid(pid)
-                            .name(title)
-                            .type("PROGRAMMING")
-                            .points(null)
-                            .url(String.format(problemPageTemplate, pid))
-                            .tags(new HashSet<>())
-                            .build();
-                    toInsert.add(info);
-                    infoMap.put(pid, info);
-                    missingPids.remove(pid); // 避免重复添加
-                } else if (info != null && !Objects.equals(info.getName(), title)) {
-                    // 题目名称有变化：更新名称，保留原有 tags
-                    info.setName(title);
-                    toUpdate.add(info);
-                }
-
-                // 构造尝试记录
-                if (info != null) {
-                    tries.add(UserTryProblem.builder()
-                            .user(user)
-                            .extOjPbInfo(info)
-                            .ojName(getOjType())
-                            .result(result)
-                            .attemptTime(attemptTime)
-                            .build());
+                // 中途放弃的 uid 结果不完整，整体失败，避免按已拉到的页推进账号水位线
+                if (consecutiveErrors >= 3) {
+                    throw new CrawlerException(getOjType(),
+                            "Luogu用户 " + uid + " 第 " + page + " 页连续3次请求失败，提交记录不完整");
                 }
             }
+        }
+        if (allRecs.isEmpty()) {
+            logger.info("用户 {} 在 {} 平台没有提交记录", user.getUsername(), getOjType());
+            return Collections.emptyList();
+        }
 
-            // 7. 批量保存题目信息，使用重试机制处理并发冲突
-            if (!toInsert.isEmpty()) {
-                DatabaseRetryUtil.executeWithRetry(() -> pbInfoRepo.saveAll(toInsert), "插入新题目");
-            }
-            if (!toUpdate.isEmpty()) {
-                DatabaseRetryUtil.executeWithRetry(() -> pbInfoRepo.saveAll(toUpdate), "更新题目信息");
+        // 4. 按 PID 汇总题目名称，批量写入题目并一次拿回全部题目ID（名称有变化时随之更新）
+        Map<String, String> pidToTitle = new HashMap<>();
+        for (JsonNode rec : allRecs) {
+            pidToTitle.put(rec.path("problem").path("pid").asText(), rec.path("problem").path("title").asText());
+        }
+        List<ProblemRow> rows = pidToTitle.entrySet().stream()
+                .map(e -> new ProblemRow(e.getKey(), e.getValue(), "PROGRAMMING", null,
+                        String.format(problemPageTemplate, e.getKey())))
+                .toList();
+        Map<String, Long> problemIds = problemUpsertService.upsert(getOjType(), rows);
+
+        // 5. 构造尝试记录
+        List<UserTryProblem> tries = new ArrayList<>();
+        for (JsonNode rec : allRecs) {
+            int status = rec.path("status").asInt();
+            ProblemResult result = LuoguProblemResultMapping.fromCode(status);
+
+            String pid = rec.path("problem").path("pid").asText();
+            long secs = rec.path("submitTime").asLong();
+            LocalDateTime attemptTime = LocalDateTime.ofEpochSecond(secs, 0, ZoneOffset.UTC);
+
+            Long problemId = problemIds.get(pid);
+            if (problemId != null) {
+                tries.add(UserTryProblem.builder()
+                        .user(user)
+                        .userOj(recAccounts.get(rec))
+                        .extOjPbInfo(ProblemUpsertService.reference(problemId))
+                        .ojName(getOjType())
+                        .result(result)
+                        .attemptTime(attemptTime)
+                        .build());
             }
-
-            logger.info("Luogu 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
-            return tries;
-        } catch (TokenExpiredException e) {
-            // 重新抛出token失效异常
-            throw e;
-        } catch (CrawlerException e) {
-            logger.error("Luogu爬虫异常: {}", e.getMessage());
-            return Collections.emptyList();
-        } catch (Exception e) {
-            logger.error("获取Luogu用户尝试记录时发生未知异常: {}", e.getMessage());
-            return Collections.emptyList();
         }
+
+        logger.info("Luogu 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
+        return tries;
     }
 
     /**
      * 批量获取 Luogu 题目信息
      */
     public List<ExtOjPbInfo> getAllPbInfo(int startId, int endId) {
-        List<ExtOjPbInfo> list = new ArrayList<>();
+        List<String> pids = new ArrayList<>();
         for (int i = startId; i <= endId; i++) {
-            String pid = String.valueOf(i);
-            ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                    .orElseGet(() -> {
-                        ExtOjPbInfo p = fetchProblem(pid);
-                        return (p != null) ? pbInfoRepo.save(p) : null;
-                    });
-            if (info != null)
-                list.add(info);
+            pids.add(String.valueOf(i));
         }
-        return list;
+        // 已有题目直接取ID，缺失的逐个抓取详情后一次性写入
+        Map<String, Long> ids = problemUpsertService.resolve(getOjType(), pids, this::fetchProblem);
+        return pbInfoRepo.findAllById(ids.values());
     }
 }
 
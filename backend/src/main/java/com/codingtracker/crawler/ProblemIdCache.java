@@ -0,0 +1,152 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.ProblemTagRepository.ProblemRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内的题目ID / 标签ID 缓存，所有爬虫线程共享。
+ * 按需填充，并由题目写入路径写穿：记录每道题最近一次写入的内容，
+ * 内容未变的题目在后续抓取中无需再访问数据库。
+ * 题目和标签只增不删，缓存无需过期；条目数超过上限时整体清空重建。
+ */
+@Component
+public class ProblemIdCache {
+
+    /**
+     * @param id      题目ID
+     * @param content 最近一次写入的内容，仅查询得到（未经本进程写入）时为 null
+     */
+    private record CachedProblem(long id, Content content) {
+    }
+
+    /**
+     * 题目行中会写入数据库的字段，按值比较；标签顺序不影响比较结果
+     */
+    private record Content(String name, String type, Double points, String url, Set<String> tags) {
+
+        static Content of(ProblemRow row) {
+            return new Content(row.name(), row.type(), row.points(), row.url(), new HashSet<>(row.tags()));
+        }
+    }
+
+    /**
+     * 命中统计
+     */
+    public record Stats(int problems, int tags, long problemHits, long problemMisses, long tagHits, long tagMisses) {
+    }
+
+    private final int maxEntries;
+    private final Map<OJPlatform, Map<String, CachedProblem>> problems = new ConcurrentHashMap<>();
+    private final Map<String, Long> tags = new ConcurrentHashMap<>();
+
+    private final LongAdder problemHits = new LongAdder();
+    private final LongAdder problemMisses = new LongAdder();
+    private final LongAdder tagHits = new LongAdder();
+    private final LongAdder tagMisses = new LongAdder();
+
+    public ProblemIdCache(@Value("${crawler.id-cache.max-entries:500000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 查询题目ID
+     *
+     * @return 未缓存时为 null
+     */
+    public Long getProblemId(OJPlatform ojName, String pid) {
+        CachedProblem cached = platform(ojName).get(pid);
+        if (cached == null) {
+            problemMisses.increment();
+            return null;
+        }
+        problemHits.increment();
+        return cached.id();
+    }
+
+    /**
+     * 题目是否已按相同内容写入过
+     *
+     * @return 是则返回题目ID，否则为 null
+     */
+    public Long getIfUnchanged(OJPlatform ojName, ProblemRow row) {
+        CachedProblem cached = platform(ojName).get(row.pid());
+        if (cached == null || cached.content() == null || !cached.content().equals(Content.of(row))) {
+            problemMisses.increment();
+            return null;
+        }
+        problemHits.increment();
+        return cached.id();
+    }
+
+    /**
+     * 记录查询得到的题目ID（已记录内容的条目保持不变）
+     */
+    public void putProblemId(OJPlatform ojName, String pid, long id) {
+        Map<String, CachedProblem> map = platform(ojName);
+        map.putIfAbsent(pid, new CachedProblem(id, null));
+        trim(map);
+    }
+
+    /**
+     * 记录写入后的题目ID及内容
+     */
+    public void putWritten(OJPlatform ojName, ProblemRow row, long id) {
+        Map<String, CachedProblem> map = platform(ojName);
+        map.put(row.pid(), new CachedProblem(id, Content.of(row)));
+        trim(map);
+    }
+
+    /**
+     * 查询标签ID
+     *
+     * @return 未缓存时为 null
+     */
+    public Long getTagId(String name) {
+        Long id = tags.get(name);
+        if (id == null) {
+            tagMisses.increment();
+        } else {
+            tagHits.increment();
+        }
+        return id;
+    }
+
+    public void putTagId(String name, long id) {
+        if (tags.size() >= maxEntries) {
+            tags.clear();
+        }
+        tags.put(name, id);
+    }
+
+    public Stats stats() {
+        int problemCount = problems.values().stream().mapToInt(Map::size).sum();
+        return new Stats(problemCount, tags.size(), problemHits.sum(), problemMisses.sum(),
+                tagHits.sum(), tagMisses.sum());
+    }
+
+    /**
+     * 清空缓存（手工修改题目/标签表后调用）
+     */
+    public void clear() {
+        problems.clear();
+        tags.clear();
+    }
+
+    private Map<String, CachedProblem> platform(OJPlatform ojName) {
+        return problems.computeIfAbsent(ojName, k -> new ConcurrentHashMap<>());
+    }
+
+    private void trim(Map<String, CachedProblem> map) {
+        if (map.size() > maxEntries) {
+            map.clear();
+        }
+    }
+}
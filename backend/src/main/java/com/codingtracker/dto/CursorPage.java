@@ -0,0 +1,19 @@
+package com.codingtracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;      // 本页数据
+    private String nextCursor;  // 下一页游标，没有更多数据时为 null
+    private Long total;         // 总条数，未要求统计时为 null
+}
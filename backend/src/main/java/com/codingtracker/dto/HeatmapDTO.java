@@ -0,0 +1,21 @@
+package com.codingtracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户一年的每日活跃度，数组下标为当年的第几天（从 0 开始，1 月 1 日为 0）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapDTO {
+    private String username;
+    private int year;
+    private short[] tries;   // 每天的尝试次数（超过 32767 记为 32767）
+    private short[] acs;     // 每天的 AC 提交次数
+    private long totalTries; // 全年尝试次数
+    private long totalAc;    // 全年 AC 提交次数
+    private int activeDays;  // 有尝试的天数
+}
@@ -0,0 +1,18 @@
+package com.codingtracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 冗余表全量重建结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OptimizedRebuildReport {
+    private long rows;          // 写入的冗余行数
+    private long buildMillis;   // 影子表构建耗时（期间线上表照常可读）
+    private long swapMillis;    // RENAME 切换耗时，即读者可见的停顿
+    private long totalMillis;   // 总耗时
+}
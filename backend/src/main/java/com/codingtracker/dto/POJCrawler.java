@@ -2,11 +2,11 @@ package com.codingtracker.crawler;
 
 import com.codingtracker.exception.CrawlerException;
 import com.codingtracker.exception.NetworkException;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.service.ProblemUpsertService;
 import io.micrometer.common.util.StringUtils;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -15,9 +15,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,9 +30,10 @@ import java.util.stream.Collectors;
 public class POJCrawler {
 
     private static final Logger logger = LoggerFactory.getLogger(POJCrawler.class);
+    private static final DateTimeFormatter SUBMIT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Autowired
-    private ExtOjLinkRepository linkRepo;
+    private ExtOjLinkDataLoader extOjLinkDataLoader;
 
     @Autowired
     private ExtOjPbInfoRepository pbInfoRepo;
@@ -40,6 +41,12 @@ public class POJCrawler {
     @Autowired
     private HttpUtil httpUtil;
 
+    @Autowired
+    private ProblemUpsertService problemUpsertService;
+
+    @Autowired
+    private CrawlScheduler crawlScheduler;
+
     /**
      * 当前爬虫对应的平台类型
      */
@@ -65,15 +72,13 @@ public class POJCrawler {
      * 拉取或创建单个 POJ 题目信息实体
      */
     private ExtOjPbInfo fetchProblem(String pid) {
-        ExtOjLink link = linkRepo.findById(getOjType())
+        ExtOjLink link = extOjLinkDataLoader.find(getOjType())
                 .orElseThrow(() -> new RuntimeException("Missing POJ link config"));
         String problemUrl = String.format(link.getProblemLink(), pid);
         logger.info("调用 POJ 题目页面，url：{}", problemUrl);
         try {
-            Document doc = Jsoup.connect(problemUrl)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10000)
-                    .get();
+            crawlScheduler.throttle(getOjType());
+            Document doc = httpUtil.readJsoupURL(problemUrl);
             String title = Optional.ofNullable(doc.selectFirst("h1")).map(Element::text).orElse(doc.title());
             return ExtOjPbInfo.builder()
                     .ojName(getOjType())
@@ -84,7 +89,7 @@ public class POJCrawler {
                     .url(problemUrl)
                     .tags(Collections.emptySet())
                     .build();
-        } catch (IOException e) {
+        } catch (Exception e) {
             logger.error("拉取 POJ 题目 {} 信息失败", pid, e);
             return null;
         }
@@ -94,98 +99,98 @@ public class POJCrawler {
      * 获取指定用户的所有尝试记录（含 Accepted），映射为 UserTryProblem 列表
      */
     public List<UserTryProblem> userTryProblems(User user) {
-        try {
-            ExtOjLink link = linkRepo.findById(getOjType())
-                    .orElseThrow(() -> new CrawlerException(getOjType(), "Missing POJ link config"));
-            String statusTpl = link.getUserInfoLink(); // e.g. "http://poj.org/status?user_id=%s"
-
-            // 收集用户所有 POJ 账号
-            List<String> handles = user.getOjAccounts().stream()
-                    .filter(uo -> uo.getPlatform() == getOjType())
-                    .map(UserOJ::getAccountName)
-                    .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
-                    .filter(StringUtils::isNotBlank)
-                    .toList();
-            if (handles.isEmpty()) {
-                logger.warn("用户 {} 未配置 POJ 账号", user.getUsername());
-                return Collections.emptyList();
-            }
-
-            List<UserTryProblem> tries = new ArrayList<>();
-            for (String handle : handles) {
-                try {
-                    // 找到对应的UserOJ实体
-                    UserOJ userOj = user.getOjAccounts().stream()
-                            .filter(uo -> uo.getPlatform() == getOjType() && uo.getAccountName().equals(handle))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (userOj == null) {
-                        logger.warn("未找到用户 {} 的 {} 平台账号: {}", user.getUsername(), getOjType(), handle);
-                        continue;
-                    }
+        ExtOjLink link = extOjLinkDataLoader.find(getOjType())
+                .orElseThrow(() -> new CrawlerException(getOjType(), "Missing POJ link config"));
+        String statusTpl = link.getUserInfoLink(); // e.g. "http://poj.org/status?user_id=%s"
+
+        // 收集用户所有 POJ 账号
+        List<UserOJ> accounts = user.getOjAccounts().stream()
+                .filter(uo -> uo.getPlatform() == getOjType())
+                .filter(uo -> StringUtils.isNotBlank(uo.getAccountName()))
+                .toList();
+        if (accounts.isEmpty()) {
+            logger.warn("用户 {} 未配置 POJ 账号", user.getUsername());
+            return Collections.emptyList();
+        }
 
-                    String url = String.format(statusTpl, handle);
-                    logger.info("调用 POJ 用户状态页面，url：{}", url);
-                    Document doc = Jsoup.connect(url)
-                            .userAgent("Mozilla/5.0")
-                            .timeout(10000)
-                            .get();
-                    Element table = doc.selectFirst("table.a");
-                    if (table == null) {
-                        logger.warn("用户 {} 的提交记录表格未找到", handle);
-                        continue;
-                    }
-                    Elements rows = table.select("tr");
-                    for (Element row : rows) {
-                        try {
-                            Elements cols = row.select("td");
-                            if (cols.size() >= 9) {
-                                String pid = cols.get(2).text().trim();
-                                String verdict = cols.get(3).text().trim();
-                                // 只记录 AC
-                                if (!"Accepted".equalsIgnoreCase(verdict))
-                                    continue;
-                                LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
-                                ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                                        .orElseGet(() -> {
-                                            try {
-                                                ExtOjPbInfo p = fetchProblem(pid);
-                                                return (p != null) ? pbInfoRepo.save(p) : null;
-                                            } catch (Exception e) {
-                                                logger.error("获取POJ题目 {} 信息失败: {}", pid, e.getMessage());
-                                                return null;
-                                            }
-                                        });
-                                if (info == null)
-                                    continue;
-                                tries.add(UserTryProblem.builder()
-                                        .user(user)
-                                        .userOj(userOj) // 设置关联的OJ账号
-                                        .extOjPbInfo(info)
-                                        .ojName(getOjType())
-                                        .result(ProblemResult.AC)
-                                        .attemptTime(now)
-                                        .build());
-                            }
-                        } catch (Exception e) {
-                            logger.warn("解析POJ用户 {} 的某行提交记录时发生异常: {}", handle, e.getMessage());
+        // 逐个账号、逐个 handle 拉取；任一 handle 拉取失败都直接抛出，避免按部分结果推进账号水位线
+        List<AcceptedRow> accepted = new ArrayList<>();
+        for (UserOJ userOj : accounts) {
+            LocalDateTime since = userOj.getLastAttemptTime();
+            for (String handle : userOj.getAccountName().split("\\s*,\\s*")) {
+                if (StringUtils.isBlank(handle)) {
+                    continue;
+                }
+                String url = String.format(statusTpl, handle.trim());
+                logger.info("调用 POJ 用户状态页面，url：{}", url);
+                crawlScheduler.throttle(getOjType());
+                Document doc = httpUtil.readJsoupURL(url);
+                Element table = doc.selectFirst("table.a");
+                if (table == null) {
+                    throw new CrawlerException(getOjType(), "用户 " + handle + " 的提交记录表格未找到");
+                }
+                for (Element row : table.select("tr")) {
+                    Elements cols = row.select("td");
+                    if (cols.size() >= 9) {
+                        String pid = cols.get(2).text().trim();
+                        String verdict = cols.get(3).text().trim();
+                        LocalDateTime submitTime = parseSubmitTime(cols.get(8).text());
+                        if (submitTime == null) {
+                            logger.warn("POJ用户 {} 的提交时间无法解析，跳过该行: {}", handle, cols.get(8).text());
+                            continue;
                         }
+                        // 状态页按时间倒序，早于水位线的记录已入库
+                        if (since != null && submitTime.isBefore(since))
+                            break;
+                        // 只记录 AC
+                        if (!"Accepted".equalsIgnoreCase(verdict))
+                            continue;
+                        accepted.add(new AcceptedRow(userOj, pid, submitTime));
                     }
-                } catch (IOException e) {
-                    logger.error("获取 POJ 用户 {} 提交记录网络请求失败: {}", handle, e.getMessage());
-                } catch (Exception e) {
-                    logger.error("获取 POJ 用户 {} 提交记录时发生异常: {}", handle, e.getMessage());
                 }
             }
-            logger.info("POJ 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
-            return tries;
-        } catch (CrawlerException e) {
-            logger.error("POJ爬虫异常: {}", e.getMessage());
-            return Collections.emptyList();
-        } catch (Exception e) {
-            logger.error("获取POJ用户尝试记录时发生未知异常: {}", e.getMessage());
-            return Collections.emptyList();
+        }
+
+        // 已有题目直接取ID，缺失的逐个抓取详情后一次性写入
+        Map<String, Long> problemIds = problemUpsertService.resolve(getOjType(),
+                accepted.stream().map(AcceptedRow::pid).toList(), pid -> {
+                    try {
+                        ExtOjPbInfo p = fetchProblem(pid);
+                        return (p != null) ? ProblemUpsertService.toRow(p) : null;
+                    } catch (Exception e) {
+                        logger.error("获取POJ题目 {} 信息失败: {}", pid, e.getMessage());
+                        return null;
+                    }
+                });
+        List<UserTryProblem> tries = accepted.stream()
+                .filter(row -> problemIds.containsKey(row.pid()))
+                .map(row -> UserTryProblem.builder()
+                        .user(user)
+                        .userOj(row.account()) // 设置关联的OJ账号
+                        .extOjPbInfo(ProblemUpsertService.reference(problemIds.get(row.pid())))
+                        .ojName(getOjType())
+                        .result(ProblemResult.AC)
+                        .attemptTime(row.submitTime())
+                        .build())
+                .toList();
+        logger.info("POJ 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
+        return tries;
+    }
+
+    /**
+     * 状态页中的一条 Accepted 记录
+     */
+    private record AcceptedRow(UserOJ account, String pid, LocalDateTime submitTime) {
+    }
+
+    /**
+     * 解析状态页中的提交时间（yyyy-MM-dd HH:mm:ss），无法解析时返回 null
+     */
+    private LocalDateTime parseSubmitTime(String text) {
+        try {
+            return LocalDateTime.parse(text.trim(), SUBMIT_TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
         }
     }
 
@@ -193,17 +198,12 @@ public class POJCrawler {
      * 批量获取题目信息
      */
     public List<ExtOjPbInfo> getAllPbInfo(List<String> pids) {
-        List<ExtOjPbInfo> list = new ArrayList<>();
-        for (String pid : pids) {
-            ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                    .orElseGet(() -> {
-                        ExtOjPbInfo p = fetchProblem(pid);
-                        return (p != null) ? pbInfoRepo.save(p) : null;
-                    });
-            if (info != null)
-                list.add(info);
-        }
-        return list;
+        // 已有题目直接取ID，缺失的逐个抓取详情后一次性写入
+        Map<String, Long> ids = problemUpsertService.resolve(getOjType(), pids, pid -> {
+            ExtOjPbInfo p = fetchProblem(pid);
+            return (p != null) ? ProblemUpsertService.toRow(p) : null;
+        });
+        return pbInfoRepo.findAllById(ids.values());
     }
 
     /**
@@ -0,0 +1,19 @@
+package com.codingtracker.dto;
+
+import com.codingtracker.repository.SolvedIndexRepository.ProblemRef;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 题目集合运算结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolvedSetDTO {
+    private long count;                // 集合大小
+    private List<ProblemRef> problems; // 按题目ID升序的前若干道题
+}
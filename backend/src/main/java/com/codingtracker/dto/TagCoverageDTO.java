@@ -0,0 +1,20 @@
+package com.codingtracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 某个题目标签的覆盖情况
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagCoverageDTO {
+    private String tag;
+    private long total;                 // 该标签下的题目数
+    private long solvedByAny;           // 被任一用户解决的题目数
+    private Map<String, Long> perUser;  // 用户名 → 解决的题目数
+}
@@ -0,0 +1,18 @@
+package com.codingtracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 某个题目标签在时间窗口内的尝试统计
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagStatDTO {
+    private String tag;
+    private long tryCount;  // 尝试次数
+    private long acCount;   // AC 提交次数
+    private double acRate;  // AC 提交占比
+}
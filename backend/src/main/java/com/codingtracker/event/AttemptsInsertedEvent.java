@@ -0,0 +1,21 @@
+package com.codingtracker.event;
+
+import com.codingtracker.model.ProblemResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 新尝试记录写入事件，由 ExtOjService 在保存一个抓取任务的结果时发布，
+ * 监听方应使用 {@code @TransactionalEventListener} 以便只处理已提交的数据
+ *
+ * @param attempts 本次新增的尝试记录
+ */
+public record AttemptsInsertedEvent(List<Attempt> attempts) {
+
+    /**
+     * 新增的一条尝试记录（只含ID与结果，不引用实体）
+     */
+    public record Attempt(int userId, long problemId, ProblemResult result, LocalDateTime attemptTime) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.codingtracker.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 尝试记录刷新完成事件，由 ExtOjService 在一次刷新提交后发布
+ *
+ * @param addedCount  本次新增的尝试记录数
+ * @param refreshedAt 刷新完成时间
+ */
+public record TriesRefreshedEvent(int addedCount, LocalDateTime refreshedAt) {
+}
@@ -0,0 +1,30 @@
+package com.codingtracker.init;
+
+import com.codingtracker.service.DailyStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 系统启动时检查日汇总表，为空则按已有尝试记录全量构建
+ */
+@Component
+public class DailyStatsInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyStatsInitializer.class);
+
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            dailyStatsService.rebuildIfEmpty();
+        } catch (Exception e) {
+            logger.error("初始化日汇总表时发生错误: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -16,10 +17,19 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * OJ 链接配置：启动时从 oj_links.json 写入数据库，并在内存中保存全部配置的只读快照。
+ * 爬虫和适配器从快照读取配置，不访问数据库；配置变更后调用 {@link #reload()} 整体替换快照。
+ * 其他节点修改的配置由 {@link #syncFromStore()} 定时拉取，最多延迟一个同步周期生效。
+ */
 @Component
 public class ExtOjLinkDataLoader {
 
@@ -29,6 +39,7 @@ public class ExtOjLinkDataLoader {
     private final ExtOjLinkRepository repository;
     private final ObjectMapper objectMapper;
     private final ResourceLoader resourceLoader;
+    private final AtomicReference<Map<OJPlatform, ExtOjLink>> snapshot = new AtomicReference<>(Map.of());
 
     public ExtOjLinkDataLoader(ExtOjLinkRepository repository, ObjectMapper objectMapper,
             ResourceLoader resourceLoader) {
@@ -62,6 +73,41 @@ public class ExtOjLinkDataLoader {
             repository.save(entity);
             log.info("saved oj link {}", entity);
         }
+        reload();
+    }
+
+    /**
+     * 从快照读取平台配置，返回的对象为共享只读副本，不可修改
+     */
+    public Optional<ExtOjLink> find(OJPlatform platform) {
+        return Optional.ofNullable(snapshot.get().get(platform));
+    }
+
+    /**
+     * 从数据库重新加载全部配置并原子替换快照
+     */
+    public void reload() {
+        Map<OJPlatform, ExtOjLink> links = load();
+        snapshot.set(links);
+        log.info("OJ链接配置快照已加载，共 {} 个平台", links.size());
+    }
+
+    // 定时拉取其他节点写入的配置（表只有每个平台一行，直接整表比对），有变化时替换快照
+    @Scheduled(fixedDelayString = "${crawler.links.sync-interval-ms:30000}")
+    public void syncFromStore() {
+        Map<OJPlatform, ExtOjLink> links = load();
+        if (!links.equals(snapshot.get())) {
+            snapshot.set(links);
+            log.info("检测到OJ链接配置变更，快照已更新，共 {} 个平台", links.size());
+        }
+    }
+
+    private Map<OJPlatform, ExtOjLink> load() {
+        Map<OJPlatform, ExtOjLink> links = new EnumMap<>(OJPlatform.class);
+        for (ExtOjLink link : repository.findAll()) {
+            links.put(link.getOj(), copyOf(link));
+        }
+        return Map.copyOf(links);
     }
 
     /**
@@ -95,6 +141,25 @@ public class ExtOjLinkDataLoader {
         }
     }
 
+    /**
+     * 复制实体，快照中的对象与 JPA 持久化上下文无关
+     */
+    private ExtOjLink copyOf(ExtOjLink entity) {
+        return ExtOjLink.builder()
+                .oj(entity.getOj())
+                .homepageLink(entity.getHomepageLink())
+                .loginPageLink(entity.getLoginPageLink())
+                .submissionRecordsLink(entity.getSubmissionRecordsLink())
+                .userInfoLink(entity.getUserInfoLink())
+                .pbStatusLink(entity.getPbStatusLink())
+                .problemLink(entity.getProblemLink())
+                .loginLink(entity.getLoginLink())
+                .authToken(entity.getAuthToken())
+                .tokenFormat(entity.getTokenFormat())
+                .requiresToken(entity.getRequiresToken())
+                .build();
+    }
+
     /**
      * 转换ExtOjLink实体为DTO
      */
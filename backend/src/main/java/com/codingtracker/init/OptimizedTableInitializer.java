@@ -0,0 +1,33 @@
+package com.codingtracker.init;
+
+import com.codingtracker.repository.UserTryProblemOptimizedJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 系统启动时清理冗余表上已废弃的索引：
+ * idx_user_time_id (username, attempt_time, id) 与 idx_user_time 完全重复（InnoDB 二级索引末尾自带主键）
+ */
+@Component
+public class OptimizedTableInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimizedTableInitializer.class);
+
+    @Autowired
+    private UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            if (optimizedJdbcRepo.dropIndexIfExists("idx_user_time_id")) {
+                logger.info("已删除冗余表上的重复索引 idx_user_time_id");
+            }
+        } catch (Exception e) {
+            logger.error("清理冗余表索引时发生错误: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.codingtracker.init;
+
+import com.codingtracker.service.TagStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 系统启动时检查标签汇总表，为空则按已有尝试记录全量构建
+ */
+@Component
+public class TagStatsInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagStatsInitializer.class);
+
+    @Autowired
+    private TagStatsService tagStatsService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            tagStatsService.rebuildIfEmpty();
+        } catch (Exception e) {
+            logger.error("初始化标签汇总表时发生错误: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 持久化的抓取任务：一个用户在一个平台上的一次抓取。
+ * 工作线程以 SELECT ... FOR UPDATE SKIP LOCKED 认领任务并持有租约，
+ * 进程重启或实例宕机后，租约过期的任务会重新回到待执行状态，多个后端实例可共同消费
+ */
+@Entity
+@Table(
+        name = "crawl_job",
+        indexes = {
+                @Index(name = "idx_claim", columnList = "status, platform, priority, id"),  // 按优先级认领
+                @Index(name = "idx_lease", columnList = "status, lease_until"),             // 回收过期租约
+                @Index(name = "idx_run", columnList = "run_id, status")                    // 全量刷新进度
+        },
+        uniqueConstraints = {
+                // 同一用户同一平台最多一个未完成的任务，完成后置空以便再次入队
+                @UniqueConstraint(name = "uk_active_key", columnNames = "active_key")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CrawlJob {
+
+    public enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "active_key", length = 64)
+    private String activeKey;  // 未完成时为 "用户ID:平台"，用于合并重复请求
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private OJPlatform platform;
+
+    @Column(nullable = false)
+    private Integer priority;  // CrawlPriority 的序号，越小越先执行
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private Integer attempts;  // 已认领次数
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;  // 持有租约的实例
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;  // 租约到期时间，过期未续约视为执行者已失联
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;  // 失败重试的最早时间
+
+    @Column(name = "run_id", length = 36)
+    private String runId;  // 所属的全量刷新批次，按需刷新为空
+
+    @Column(nullable = false)
+    private Boolean rerun;  // 执行期间又收到请求，完成后重新排队
+
+    @Column(name = "merged_count", nullable = false)
+    private Integer mergedCount;  // 合并到本任务的重复请求数
+
+    @Column(name = "added_count")
+    private Integer addedCount;  // 本次新增的记录数
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,37 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * 已吊销的 JWT，按 token ID（jti）记录，过期后可清理；多个后端实例共享
+ */
+@Entity
+@Table(
+        name = "revoked_token",
+        indexes = {
+                @Index(name = "idx_revoked_at", columnList = "revoked_at"),  // 各节点增量同步
+                @Index(name = "idx_expires_at", columnList = "expires_at")   // 清理过期记录
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    @Id
+    @Column(name = "token_id", length = 64)
+    private String tokenId;  // JWT 的 jti
+
+    @Column(nullable = false, length = 64)
+    private String username;  // 所属用户
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;  // 吊销时间
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;  // Token 原本的过期时间，此后记录无需保留
+}
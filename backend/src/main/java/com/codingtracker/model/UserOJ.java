@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.time.LocalDateTime;
+
 /**
  * 用户 OJ 账户类
  */
@@ -44,6 +46,19 @@ public class UserOJ implements Comparable<UserOJ>{
     @Column(name = "account_name", nullable = false)
     private String accountName;
 
+    /**
+     * 增量抓取水位线：该账号已入库的最新一次尝试时间，
+     * 爬虫只需拉取不早于该时间的提交；为空表示需要全量抓取
+     */
+    @Column(name = "last_attempt_time")
+    private LocalDateTime lastAttemptTime;
+
+    /**
+     * 最近一次成功抓取该账号的时间
+     */
+    @Column(name = "last_crawl_time")
+    private LocalDateTime lastCrawlTime;
+
     @Override
     public int compareTo(UserOJ other) {
         int c = Integer.compare(this.user.getId(), other.user.getId());
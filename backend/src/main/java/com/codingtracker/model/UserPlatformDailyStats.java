@@ -0,0 +1,49 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 用户-平台-日 维度的尝试统计汇总表，由新增尝试记录增量维护，供排行榜按天求和
+ */
+@Entity
+@Table(
+        name = "user_platform_daily_stats",
+        indexes = {
+                @Index(name = "idx_day_user", columnList = "stat_date, user_id")  // 按日期区间汇总
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_user_platform_day", columnNames = { "user_id", "oj_name", "stat_date" })
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPlatformDailyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;  // 用户ID
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "oj_name", nullable = false, length = 32)
+    private OJPlatform ojName;  // 平台
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;  // 统计日期（按 attempt_time 的日期部分）
+
+    @Column(name = "try_count", nullable = false)
+    private long tryCount;  // 当天尝试次数
+
+    @Column(name = "ac_count", nullable = false)
+    private long acCount;  // 当天 AC 提交次数
+
+    @Column(name = "distinct_ac_count", nullable = false)
+    private long distinctAcCount;  // 当天 AC 的不同题目数
+}
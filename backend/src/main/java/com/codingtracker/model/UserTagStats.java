@@ -0,0 +1,46 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 用户-题目标签-日 维度的尝试统计汇总表，由新增尝试记录增量维护，供标签覆盖率按天求和。
+ * 这里的标签是题目标签（problem_tags / tag），不是用户分组标签 user_tag
+ */
+@Entity
+@Table(
+        name = "user_tag_stats",
+        indexes = {
+                @Index(name = "idx_user_day", columnList = "user_id, stat_date")  // 按用户与日期区间汇总
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_user_tag_day", columnNames = { "user_id", "tag_id", "stat_date" })
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserTagStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;  // 用户ID
+
+    @Column(name = "tag_id", nullable = false)
+    private Long tagId;  // 题目标签ID
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;  // 统计日期（按 attempt_time 的日期部分）
+
+    @Column(name = "try_count", nullable = false)
+    private long tryCount;  // 当天该标签题目的尝试次数
+
+    @Column(name = "ac_count", nullable = false)
+    private long acCount;  // 当天该标签题目的 AC 提交次数
+}
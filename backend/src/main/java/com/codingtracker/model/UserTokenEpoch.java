@@ -0,0 +1,30 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * 用户级 Token 纪元：签发时间早于 not_before 的该用户 Token 一律视为失效（修改密码等场景）
+ */
+@Entity
+@Table(
+        name = "user_token_epoch",
+        indexes = {
+                @Index(name = "idx_not_before", columnList = "not_before")  // 各节点增量同步
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserTokenEpoch {
+
+    @Id
+    @Column(length = 64)
+    private String username;  // 用户名
+
+    @Column(name = "not_before", nullable = false)
+    private Instant notBefore;  // 早于此时间签发的 Token 失效
+}
@@ -13,7 +13,11 @@ import java.time.LocalDateTime;
         name = "user_try_problem_optimized",
         indexes = {
                 //@Index(name = "idx_attempt_time", columnList = "attempt_time"),  // 时间索引
-                @Index(name = "idx_user_time", columnList = "username, attempt_time")  // 联合索引：用户名 + 时间
+                // 联合索引：用户名 + 时间；InnoDB 二级索引末尾自带主键 id，游标分页的定位与计数只扫该索引
+                @Index(name = "idx_user_time", columnList = "username, attempt_time")
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_try_id", columnNames = "try_id")  // 每条尝试记录只对应一行
         }
 )
 @Data
@@ -28,6 +32,9 @@ public class UserTryProblemOptimized {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "try_id")
+    private Long tryId;  // 来源尝试记录ID（user_try_problem.id）
+
     @Column(nullable = false)
     private String username;  // 用户name
 
@@ -0,0 +1,254 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.OJPlatform;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 抓取任务表 crawl_job 的读写。
+ * 时间比较一律使用数据库的 NOW()，多个实例之间不依赖本机时钟一致。
+ * 注意：MySQL 单表 UPDATE 的赋值按从左到右执行，后面的表达式看到的是前面已更新的值
+ */
+@Repository
+public class CrawlJobRepository {
+
+    /**
+     * 被认领的任务
+     */
+    public record ClaimedJob(long id, int userId, OJPlatform platform, int priority, String runId) {
+    }
+
+    /**
+     * 次数用尽但带 rerun 的任务作为新请求重新计数：attempts 清零后再清除 rerun
+     * （认领后 attempts 至少为 1，清零只会发生在这里）。参数为最大尝试次数
+     */
+    private static final String RESET_EXHAUSTED_RERUN =
+            "attempts = IF(attempts >= ? AND rerun, 0, attempts), rerun = IF(attempts = 0, 0, rerun), ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 提交单个任务。同一用户同一平台已有未完成任务时不新建：
+     * 提升其优先级，若已在执行则标记完成后重新排队。
+     * 新建与合并在同一条语句中完成，不会因现有任务恰好结束而丢失请求；
+     * 合并时 merged_count 必然变化，受影响行数为 2（新建为 1）
+     *
+     * @return 是否新建了任务（false 表示已合并到现有任务）
+     */
+    public boolean enqueue(int userId, OJPlatform platform, int priority) {
+        int affected = jdbcTemplate.update("INSERT INTO crawl_job "
+                        + "(active_key, user_id, platform, priority, status, attempts, rerun, merged_count, "
+                        + "created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, 'PENDING', 0, 0, 0, NOW(), NOW()) "
+                        + "ON DUPLICATE KEY UPDATE priority = LEAST(priority, ?), "
+                        + "rerun = rerun OR status = 'RUNNING', merged_count = merged_count + 1, updated_at = NOW()",
+                activeKey(userId, platform), userId, platform.name(), priority, priority);
+        return affected == 1;
+    }
+
+    /**
+     * 为一次全量刷新按 user_oj 中的 (用户, 平台) 批量建任务；已有未完成任务的直接并入本批次
+     *
+     * @param runId     批次ID
+     * @param platforms 参与刷新的平台
+     * @param priority  任务优先级
+     */
+    public void enqueueRun(String runId, Collection<OJPlatform> platforms, int priority) {
+        if (platforms.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(priority);
+        args.add(runId);
+        platforms.forEach(p -> args.add(p.name()));
+        jdbcTemplate.update("INSERT INTO crawl_job "
+                        + "(active_key, user_id, platform, priority, status, attempts, rerun, merged_count, run_id, "
+                        + "created_at, updated_at) "
+                        + "SELECT CONCAT(a.user_id, ':', a.platform), a.user_id, a.platform, ?, 'PENDING', 0, 0, 0, ?, "
+                        + "NOW(), NOW() "
+                        + "FROM (SELECT DISTINCT user_id, platform FROM user_oj WHERE platform IN ("
+                        + placeholders(platforms.size()) + ")) a "
+                        + "ON DUPLICATE KEY UPDATE run_id = COALESCE(crawl_job.run_id, VALUES(run_id)), updated_at = NOW()",
+                args.toArray());
+    }
+
+    /**
+     * 认领指定平台上优先级最高的若干待执行任务，并以租约标记为执行中。
+     * SKIP LOCKED 使并发的认领者（包括其他实例）互不等待、不会拿到同一任务
+     *
+     * @param platform     平台
+     * @param owner        认领者（实例）标识
+     * @param limit        最多认领数
+     * @param leaseSeconds 租约时长
+     * @return 认领到的任务
+     */
+    @Transactional
+    public List<ClaimedJob> claim(OJPlatform platform, String owner, int limit, int leaseSeconds) {
+        List<ClaimedJob> jobs = jdbcTemplate.query("SELECT id, user_id, platform, priority, run_id FROM crawl_job "
+                        + "WHERE status = 'PENDING' AND platform = ? "
+                        + "AND (next_attempt_at IS NULL OR next_attempt_at <= NOW()) "
+                        + "ORDER BY priority, id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, i) -> new ClaimedJob(rs.getLong(1), rs.getInt(2), OJPlatform.valueOf(rs.getString(3)),
+                        rs.getInt(4), rs.getString(5)),
+                platform.name(), limit);
+        if (jobs.isEmpty()) {
+            return jobs;
+        }
+        Object[] args = new Object[jobs.size() + 2];
+        args[0] = owner;
+        args[1] = leaseSeconds;
+        for (int i = 0; i < jobs.size(); i++) {
+            args[i + 2] = jobs.get(i).id();
+        }
+        jdbcTemplate.update("UPDATE crawl_job SET status = 'RUNNING', lease_owner = ?, "
+                + "lease_until = NOW() + INTERVAL ? SECOND, attempts = attempts + 1, updated_at = NOW() "
+                + "WHERE id IN (" + placeholders(jobs.size()) + ")", args);
+        return jobs;
+    }
+
+    /**
+     * 标记任务成功；执行期间收到过新请求的任务重新排队。租约已不属于自己时不做修改
+     *
+     * @return 是否更新成功
+     */
+    public boolean complete(long id, String owner, int addedCount) {
+        return jdbcTemplate.update("UPDATE crawl_job SET "
+                        + "status = IF(rerun, 'PENDING', 'DONE'), "
+                        + "active_key = IF(rerun, active_key, NULL), "
+                        + "finished_at = IF(rerun, NULL, NOW()), "
+                        + "attempts = IF(rerun, 0, attempts), "
+                        + "rerun = 0, added_count = ?, last_error = NULL, "
+                        + "lease_owner = NULL, lease_until = NULL, updated_at = NOW() "
+                        + "WHERE id = ? AND lease_owner = ? AND status = 'RUNNING'",
+                addedCount, id, owner) > 0;
+    }
+
+    /**
+     * 记录一次失败：未达到最大次数的按 attempts × backoff 秒延后重试，否则置为 FAILED。
+     * 次数用尽但执行期间收到过新请求的任务与 {@link #complete} 一样重新排队（次数清零），不丢弃该请求
+     *
+     * @return 是否更新成功
+     */
+    public boolean fail(long id, String owner, String error, int maxAttempts, int backoffSeconds) {
+        return jdbcTemplate.update("UPDATE crawl_job SET "
+                        + "status = IF(attempts >= ? AND NOT rerun, 'FAILED', 'PENDING'), "
+                        + "active_key = IF(status = 'FAILED', NULL, active_key), "
+                        + "finished_at = IF(status = 'FAILED', NOW(), NULL), "
+                        + "next_attempt_at = NOW() + INTERVAL (attempts * ?) SECOND, "
+                        + RESET_EXHAUSTED_RERUN
+                        + "last_error = ?, lease_owner = NULL, lease_until = NULL, updated_at = NOW() "
+                        + "WHERE id = ? AND lease_owner = ? AND status = 'RUNNING'",
+                maxAttempts, backoffSeconds, maxAttempts, truncate(error), id, owner) > 0;
+    }
+
+    /**
+     * 为本实例执行中的任务续约
+     */
+    public int renewLeases(String owner, int leaseSeconds) {
+        return jdbcTemplate.update("UPDATE crawl_job SET lease_until = NOW() + INTERVAL ? SECOND "
+                + "WHERE status = 'RUNNING' AND lease_owner = ?", leaseSeconds, owner);
+    }
+
+    /**
+     * 回收租约已过期的任务（执行者重启或失联），按失败计一次；与 {@link #fail} 一样保留合并进来的请求
+     */
+    public int releaseExpired(int maxAttempts) {
+        return jdbcTemplate.update("UPDATE crawl_job SET "
+                + "status = IF(attempts >= ? AND NOT rerun, 'FAILED', 'PENDING'), "
+                + "active_key = IF(status = 'FAILED', NULL, active_key), "
+                + "finished_at = IF(status = 'FAILED', NOW(), NULL), "
+                + RESET_EXHAUSTED_RERUN
+                + "last_error = '租约过期', lease_owner = NULL, lease_until = NULL, updated_at = NOW() "
+                + "WHERE status = 'RUNNING' AND lease_until < NOW()", maxAttempts, maxAttempts);
+    }
+
+    /**
+     * 立即交还本实例持有的任务（正常停机时调用），不计失败次数
+     */
+    public int releaseOwned(String owner) {
+        return jdbcTemplate.update("UPDATE crawl_job SET status = 'PENDING', attempts = GREATEST(attempts - 1, 0), "
+                + "lease_owner = NULL, lease_until = NULL, updated_at = NOW() "
+                + "WHERE status = 'RUNNING' AND lease_owner = ?", owner);
+    }
+
+    /**
+     * 批次中尚未完成的任务数
+     */
+    public int countActiveInRun(String runId) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crawl_job "
+                + "WHERE run_id = ? AND status IN ('PENDING', 'RUNNING')", Integer.class, runId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 批次中已完成任务的新增记录总数
+     */
+    public int sumAddedInRun(String runId) {
+        Integer sum = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(added_count), 0) FROM crawl_job "
+                + "WHERE run_id = ?", Integer.class, runId);
+        return sum == null ? 0 : sum;
+    }
+
+    /**
+     * 是否存在未完成的全量刷新任务
+     */
+    public boolean hasActiveRun() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM crawl_job "
+                + "WHERE status IN ('PENDING', 'RUNNING') AND run_id IS NOT NULL LIMIT 1", Long.class);
+        return !ids.isEmpty();
+    }
+
+    /**
+     * 待执行的任务数
+     */
+    public int countPending() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM crawl_job WHERE status = 'PENDING'",
+                Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 各状态的任务数
+     */
+    public Map<String, Integer> countByStatus() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM crawl_job GROUP BY status",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                });
+        return counts;
+    }
+
+    /**
+     * 删除完成时间早于指定天数的已结束任务
+     */
+    public int purgeFinished(int retentionDays) {
+        return jdbcTemplate.update("DELETE FROM crawl_job WHERE status IN ('DONE', 'FAILED') "
+                + "AND finished_at < NOW() - INTERVAL ? DAY", retentionDays);
+    }
+
+    private static String activeKey(int userId, OJPlatform platform) {
+        return userId + ":" + platform.name();
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
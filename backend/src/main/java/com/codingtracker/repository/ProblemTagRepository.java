@@ -1,71 +1,154 @@
 package com.codingtracker.repository;
 
+import com.codingtracker.model.OJPlatform;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * 题目（extoj_pb_info）、标签（tag）及其关联（problem_tags）的批量写入。
+ * 全部基于唯一键做 INSERT ... ON DUPLICATE KEY / INSERT IGNORE，并发抓取同一批题目时不会互相冲突；
+ * 写入前按键排序，多个线程按相同顺序加锁，避免死锁。
+ */
 @Repository
 public class ProblemTagRepository {
 
+    /**
+     * 单条语句 IN 列表的最大长度
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * 题目的可写字段
+     *
+     * @param pid    平台题号
+     * @param name   题目名称，为空时不覆盖已有值
+     * @param type   题目类型，为空时不覆盖已有值
+     * @param points 分数，为空时不覆盖已有值
+     * @param url    题目链接，为空时不覆盖已有值
+     * @param tags   标签名，只追加关联、不删除已有关联
+     */
+    public record ProblemRow(String pid, String name, String type, Double points, String url,
+                             Collection<String> tags) {
+
+        public ProblemRow(String pid, String name, String type, Double points, String url) {
+            this(pid, name, type, points, url, List.of());
+        }
+    }
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
     /**
-     * 多题目多标签批量插入关联，自动去重已有关联
-     * @param problemTagsMap  key = problemId，value = 该题目的标签ID集合
+     * 按 (pid, oj_name) 批量插入或更新题目，空字段不覆盖已有值
+     *
+     * @param ojName 平台
+     * @param rows   题目
      */
-    @Transactional
-    public void batchInsertProblemTags(Map<Long, Set<Long>> problemTagsMap) {
-        if (problemTagsMap == null || problemTagsMap.isEmpty()) {
+    public void upsertProblems(OJPlatform ojName, Collection<ProblemRow> rows) {
+        if (rows.isEmpty()) {
             return;
         }
+        List<ProblemRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(ProblemRow::pid));
+        String sql = "INSERT INTO extoj_pb_info (oj_name, pid, name, type, points, url) VALUES (?, ?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE "
+                + "name = IF(VALUES(name) IS NULL OR VALUES(name) = '', name, VALUES(name)), "
+                + "type = COALESCE(VALUES(type), type), "
+                + "points = COALESCE(VALUES(points), points), "
+                + "url = COALESCE(VALUES(url), url)";
+        jdbcTemplate.batchUpdate(sql, sorted, CHUNK_SIZE, (ps, row) -> {
+            ps.setString(1, ojName.name());
+            ps.setString(2, row.pid());
+            ps.setString(3, row.name());
+            ps.setString(4, row.type());
+            ps.setObject(5, row.points());
+            ps.setString(6, row.url());
+        });
+    }
 
-        // 先批量查询数据库中已有的所有对应关系，避免逐条查询
-        // 拼接所有 problemId 条件
-        List<Long> problemIds = new ArrayList<>(problemTagsMap.keySet());
-
-        // 查询已有的 problem_tag 关系
-        String sql = String.format(
-                "SELECT problem_id, tag_id FROM problem_tags WHERE problem_id IN (%s)",
-                problemIds.stream().map(id -> "?").collect(Collectors.joining(", "))
-        );
-
-        List<Map<String, Object>> existingRows = jdbcTemplate.queryForList(sql, problemIds.toArray());
-
-        // 构造 Map<problemId, Set<tagId>> 表示已有关系
-        Map<Long, Set<Long>> existingMap = new HashMap<>();
-        for (Map<String, Object> row : existingRows) {
-            Long pid = ((Number) row.get("problem_id")).longValue();
-            Long tid = ((Number) row.get("tag_id")).longValue();
-            existingMap.computeIfAbsent(pid, k -> new HashSet<>()).add(tid);
+    /**
+     * 查询已存在题目的主键
+     *
+     * @return pid → 题目ID，不存在的 pid 不在结果中
+     */
+    public Map<String, Long> findProblemIds(OJPlatform ojName, Collection<String> pids) {
+        Map<String, Long> ids = new HashMap<>();
+        for (List<String> chunk : chunks(pids)) {
+            String sql = "SELECT pid, id FROM extoj_pb_info WHERE oj_name = ? AND pid IN (" + placeholders(chunk.size()) + ")";
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(ojName.name());
+            args.addAll(chunk);
+            jdbcTemplate.query(sql, rs -> {
+                ids.put(rs.getString(1), rs.getLong(2));
+            }, args.toArray());
         }
+        return ids;
+    }
 
-        // 准备要插入的( problem_id, tag_id )列表，排除已有的关系
-        List<Object[]> batchArgs = new ArrayList<>();
-        for (Map.Entry<Long, Set<Long>> entry : problemTagsMap.entrySet()) {
-            Long pid = entry.getKey();
-            Set<Long> tagIds = entry.getValue();
+    /**
+     * 批量写入缺失的标签（按名称唯一），已存在的跳过
+     */
+    public void insertTags(Collection<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        List<String> sorted = new ArrayList<>(new TreeSet<>(names));
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO tag (name) VALUES (?)", sorted, CHUNK_SIZE,
+                (ps, name) -> ps.setString(1, name));
+    }
 
-            Set<Long> existTagIds = existingMap.getOrDefault(pid, Collections.emptySet());
+    /**
+     * 查询已存在标签的主键
+     *
+     * @return 标签名 → 标签ID（名称按数据库排序规则不区分大小写）
+     */
+    public Map<String, Long> findTagIds(Collection<String> names) {
+        Map<String, Long> ids = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (List<String> chunk : chunks(names)) {
+            String sql = "SELECT name, id FROM tag WHERE name IN (" + placeholders(chunk.size()) + ")";
+            jdbcTemplate.query(sql, rs -> {
+                ids.put(rs.getString(1), rs.getLong(2));
+            }, chunk.toArray());
+        }
+        return ids;
+    }
 
-            for (Long tid : tagIds) {
-                if (!existTagIds.contains(tid)) {
-                    batchArgs.add(new Object[]{pid, tid});
-                }
-            }
+    /**
+     * 多题目多标签批量插入关联，已有关联由主键自动去重
+     * @param problemTagsMap  key = problemId，value = 该题目的标签ID集合
+     */
+    public void batchInsertProblemTags(Map<Long, Set<Long>> problemTagsMap) {
+        if (problemTagsMap == null || problemTagsMap.isEmpty()) {
+            return;
         }
 
-        if (batchArgs.isEmpty()) {
-            return; // 全部已有，无需插入
+        List<long[]> links = new ArrayList<>();
+        new TreeMap<>(problemTagsMap).forEach((problemId, tagIds) ->
+                new TreeSet<>(tagIds).forEach(tagId -> links.add(new long[]{problemId, tagId})));
+        if (links.isEmpty()) {
+            return;
         }
 
-        // 批量插入
-        String insertSql = "INSERT INTO problem_tags (problem_id, tag_id) VALUES (?, ?)";
-        jdbcTemplate.batchUpdate(insertSql, batchArgs);
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO problem_tags (problem_id, tag_id) VALUES (?, ?)",
+                links, CHUNK_SIZE, (ps, link) -> {
+                    ps.setLong(1, link[0]);
+                    ps.setLong(2, link[1]);
+                });
     }
 
+    private static List<List<String>> chunks(Collection<String> values) {
+        List<String> all = new ArrayList<>(values);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += CHUNK_SIZE) {
+            chunks.add(all.subList(i, Math.min(i + CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
 }
@@ -0,0 +1,155 @@
+package com.codingtracker.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 已解决题目索引的数据来源：全量构建时流式读取 AC 记录与题目标签，
+ * 查询时把用户名、用户标签、题目范围解析为ID
+ */
+@Repository
+public class SolvedIndexRepository {
+
+    /**
+     * 单条语句 IN 列表的最大长度
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 题目的基本信息
+     */
+    public record ProblemRef(long id, String ojName, String pid, String name) {
+    }
+
+    /**
+     * 逐行回调全部 AC 记录的 (user_id, problem_id)，结果集流式读取（可能有重复对）
+     */
+    public void streamAccepted(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, problem_id FROM user_try_problem WHERE result = 'AC'",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * 逐行回调 ID 大于 afterId 的 AC 记录的 (id, user_id, problem_id)，沿主键范围扫描
+     */
+    public void streamAcceptedAfter(long afterId, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, user_id, problem_id FROM user_try_problem WHERE id > ? AND result = 'AC'",
+                handler, afterId);
+    }
+
+    /**
+     * 当前尝试记录的最大 ID，空表为 0
+     */
+    public long maxTryId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user_try_problem", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    /**
+     * 逐行回调全部题目标签 (tag_name, problem_id)
+     */
+    public void streamProblemTags(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT t.name AS tag_name, pt.problem_id FROM problem_tags pt JOIN tag t ON t.id = pt.tag_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * 按用户名和用户标签解析用户，结果为两者的并集
+     *
+     * @return 用户ID → 用户名，按用户名排序
+     */
+    public Map<Integer, String> findUsers(Collection<String> usernames, Collection<String> userTags) {
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (usernames != null && !usernames.isEmpty()) {
+            conditions.add("u.username IN (" + placeholders(usernames.size()) + ")");
+            args.addAll(usernames);
+        }
+        if (userTags != null && !userTags.isEmpty()) {
+            conditions.add("u.id IN (SELECT uut.user_id FROM user_user_tag uut JOIN user_tag t ON t.id = uut.tag_id "
+                    + "WHERE t.name IN (" + placeholders(userTags.size()) + "))");
+            args.addAll(userTags);
+        }
+        Map<Integer, String> users = new LinkedHashMap<>();
+        if (conditions.isEmpty()) {
+            return users;
+        }
+        jdbcTemplate.query("SELECT u.id, u.username FROM `user` u WHERE " + String.join(" OR ", conditions)
+                        + " ORDER BY u.username",
+                rs -> {
+                    users.put(rs.getInt("id"), rs.getString("username"));
+                },
+                args.toArray());
+        return users;
+    }
+
+    /**
+     * 某平台的题目ID，可按比赛编号精确筛选，或按题号字面前缀筛选（均可为 null）。
+     * 比赛编号只匹配“编号 + 字母题号”，因此 123 不会匹配 1230A；前缀则按字面匹配，123 会同时匹配 1230A
+     *
+     * @param ojName    平台
+     * @param contestId 比赛编号（如 Codeforces 的 1234），匹配 1234A、1234B1 等
+     * @param pidPrefix 题号字面前缀
+     */
+    public List<Long> findProblemIds(String ojName, String contestId, String pidPrefix) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM extoj_pb_info WHERE oj_name = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(ojName);
+        if (contestId != null) {
+            sql.append(" AND pid REGEXP CONCAT('^', ?, '[A-Za-z]')");
+            args.add(contestId);
+        }
+        if (pidPrefix != null) {
+            sql.append(" AND pid LIKE ?");
+            args.add(pidPrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    /**
+     * 按ID查询题目基本信息，顺序与输入一致，不存在的ID被跳过
+     */
+    public List<ProblemRef> findProblems(List<Long> ids) {
+        Map<Long, ProblemRef> found = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+            jdbcTemplate.query("SELECT id, oj_name, pid, name FROM extoj_pb_info WHERE id IN ("
+                            + placeholders(chunk.size()) + ")",
+                    rs -> {
+                        found.put(rs.getLong("id"), new ProblemRef(rs.getLong("id"), rs.getString("oj_name"),
+                                rs.getString("pid"), rs.getString("name")));
+                    },
+                    chunk.toArray());
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,4 +47,27 @@ public interface UserOJRepository extends JpaRepository<UserOJ, Integer> {
      * @return 用户的所有OJ账号列表
      */
     List<UserOJ> findByUserId(Integer userId);
+
+    /**
+     * 推进账号的增量抓取水位线（只前进不后退）
+     *
+     * @param id          OJ账号ID
+     * @param attemptTime 本次抓取到的最新尝试时间
+     * @param crawlTime   本次抓取时间
+     */
+    @Modifying
+    @Query("UPDATE UserOJ oj SET oj.lastCrawlTime = :crawlTime, " +
+            "oj.lastAttemptTime = CASE WHEN oj.lastAttemptTime IS NULL OR oj.lastAttemptTime < :attemptTime " +
+            "THEN :attemptTime ELSE oj.lastAttemptTime END " +
+            "WHERE oj.id = :id")
+    int advanceCrawlWatermark(@Param("id") Integer id,
+                              @Param("attemptTime") LocalDateTime attemptTime,
+                              @Param("crawlTime") LocalDateTime crawlTime);
+
+    /**
+     * 清空所有账号的水位线，下次刷新将全量抓取
+     */
+    @Modifying
+    @Query("UPDATE UserOJ oj SET oj.lastAttemptTime = NULL")
+    int resetCrawlWatermarks();
 }
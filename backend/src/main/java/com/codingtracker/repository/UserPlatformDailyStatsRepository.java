@@ -0,0 +1,130 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.OJPlatform;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日汇总表 user_platform_daily_stats 的维护与查询。
+ * 汇总行总是由 user_try_problem 重新聚合得到（而不是累加），重复执行结果不变
+ */
+@Repository
+public class UserPlatformDailyStatsRepository {
+
+    private static final String AGGREGATE =
+            "INSERT INTO user_platform_daily_stats "
+                    + "(user_id, oj_name, stat_date, try_count, ac_count, distinct_ac_count) "
+                    + "SELECT user_id, oj_name, DATE(attempt_time), COUNT(*), "
+                    + "SUM(CASE WHEN result = 'AC' THEN 1 ELSE 0 END), "
+                    + "COUNT(DISTINCT CASE WHEN result = 'AC' THEN problem_id END) "
+                    + "FROM user_try_problem WHERE oj_name IS NOT NULL ";
+
+    private static final String UPSERT =
+            " GROUP BY user_id, oj_name, DATE(attempt_time) "
+                    + "ON DUPLICATE KEY UPDATE try_count = VALUES(try_count), ac_count = VALUES(ac_count), "
+                    + "distinct_ac_count = VALUES(distinct_ac_count)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 重新聚合某用户某平台在 [fromDay, toDay] 内各天的汇总行。
+     * 只读取并锁定该平台的记录（走 idx_platform_user_time），不同平台的抓取任务并发写入同一用户时互不阻塞
+     *
+     * @param userId   用户ID
+     * @param platform 平台
+     * @param fromDay  起始日期（含）
+     * @param toDay    结束日期（含）
+     * @return 受影响的行数
+     */
+    public int recompute(Integer userId, OJPlatform platform, LocalDate fromDay, LocalDate toDay) {
+        return jdbcTemplate.update(
+                AGGREGATE + "AND oj_name = ? AND user_id = ? AND attempt_time >= ? AND attempt_time < ?" + UPSERT,
+                platform.name(), userId, fromDay.atStartOfDay(), toDay.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * 清空并按全部尝试记录重建汇总表
+     *
+     * @return 写入的行数
+     */
+    public int rebuildAll() {
+        jdbcTemplate.update("DELETE FROM user_platform_daily_stats");
+        return jdbcTemplate.update(AGGREGATE + UPSERT);
+    }
+
+    /**
+     * 汇总表是否为空
+     */
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM user_platform_daily_stats LIMIT 1").isEmpty();
+    }
+
+    /**
+     * 按天求和：[fromDay, toDay) 内每个用户每个平台的尝试数或 AC 数
+     *
+     * @param fromDay 起始日期（含）
+     * @param toDay   结束日期（不含）
+     * @param acOnly  true 统计 AC 次数，false 统计尝试次数
+     * @return 行格式与 UserTryProblemRepository 的分组统计一致：[userId, OJPlatform, Long]
+     */
+    public List<Object[]> sumByUserAndPlatform(LocalDate fromDay, LocalDate toDay, boolean acOnly) {
+        String column = acOnly ? "ac_count" : "try_count";
+        return jdbcTemplate.query(
+                "SELECT user_id, oj_name, SUM(" + column + ") AS cnt FROM user_platform_daily_stats "
+                        + "WHERE stat_date >= ? AND stat_date < ? "
+                        + "GROUP BY user_id, oj_name HAVING cnt > 0",
+                (rs, i) -> new Object[] {
+                        rs.getInt("user_id"), OJPlatform.valueOf(rs.getString("oj_name")), rs.getLong("cnt") },
+                fromDay, toDay);
+    }
+
+    /**
+     * 某用户 [fromDay, toDay) 内每天跨平台合计的尝试数与 AC 数，没有记录的日期不返回
+     */
+    public List<DayCounts> sumByDay(Integer userId, LocalDate fromDay, LocalDate toDay) {
+        return jdbcTemplate.query(
+                "SELECT stat_date, SUM(try_count) AS try_count, SUM(ac_count) AS ac_count "
+                        + "FROM user_platform_daily_stats WHERE user_id = ? AND stat_date >= ? AND stat_date < ? "
+                        + "GROUP BY stat_date",
+                (rs, i) -> new DayCounts(rs.getObject("stat_date", LocalDate.class),
+                        rs.getLong("try_count"), rs.getLong("ac_count")),
+                userId, fromDay, toDay);
+    }
+
+    /**
+     * 某天的合计
+     */
+    public record DayCounts(LocalDate day, long tryCount, long acCount) {
+    }
+
+    /**
+     * 直接扫描尝试记录：[from, to) 或 [from, to] 内每个用户每个平台的尝试数或 AC 数，用于区间两端不足一天的部分
+     *
+     * @param from        起始时间（含）
+     * @param to          结束时间
+     * @param toInclusive 是否包含结束时间
+     * @param acOnly      true 统计 AC 次数，false 统计尝试次数
+     * @return [userId, OJPlatform, Long]
+     */
+    public List<Object[]> countRawByUserAndPlatform(LocalDateTime from, LocalDateTime to, boolean toInclusive,
+            boolean acOnly) {
+        if (to.isBefore(from) || (!toInclusive && !from.isBefore(to))) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT user_id, oj_name, COUNT(*) AS cnt FROM user_try_problem "
+                + "WHERE oj_name IS NOT NULL AND attempt_time >= ? AND attempt_time " + (toInclusive ? "<=" : "<") + " ? "
+                + (acOnly ? "AND result = 'AC' " : "")
+                + "GROUP BY user_id, oj_name";
+        return jdbcTemplate.query(sql,
+                (rs, i) -> new Object[] {
+                        rs.getInt("user_id"), OJPlatform.valueOf(rs.getString("oj_name")), rs.getLong("cnt") },
+                from, to);
+    }
+}
@@ -2,9 +2,12 @@ package com.codingtracker.repository;
 
 import com.codingtracker.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,6 +50,15 @@ public interface UserRepository extends JpaRepository<User, Integer> {
             "ORDER BY u.id")
     List<User> findAllWithTags();
 
+    /**
+     * 按用户ID列表加载用户和标签
+     */
+    @Query("SELECT DISTINCT u FROM User u " +
+            "LEFT JOIN FETCH u.tags " +
+            "WHERE u.id IN :userIds " +
+            "ORDER BY u.id")
+    List<User> findAllWithTagsByIds(List<Integer> userIds);
+
     /**
      * 加载用户和OJ账号
      */
@@ -89,4 +101,20 @@ public interface UserRepository extends JpaRepository<User, Integer> {
             "WHERE u.id IN :userIds " +
             "ORDER BY u.id")
     List<User> findByIdsWithOJAccounts(List<Integer> userIds);
+
+    /**
+     * 查询全部用户，同时加载OJ账号（供事务外的抓取使用）
+     */
+    @Query("SELECT DISTINCT u FROM User u " +
+            "LEFT JOIN FETCH u.ojAccounts " +
+            "ORDER BY u.id")
+    List<User> findAllWithOJAccounts();
+
+    /**
+     * 只在更晚时推进用户的最后尝试时间，不覆盖用户的其他字段
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.lastTryDate = :time " +
+            "WHERE u.id = :id AND (u.lastTryDate IS NULL OR u.lastTryDate < :time)")
+    int advanceLastTryDate(@Param("id") Integer id, @Param("time") LocalDateTime time);
 }
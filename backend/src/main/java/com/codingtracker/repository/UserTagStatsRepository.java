@@ -0,0 +1,104 @@
+package com.codingtracker.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 标签汇总表 user_tag_stats 的维护与查询。
+ * 汇总行总是由 user_try_problem 与 problem_tags 重新聚合得到（而不是累加），重复执行结果不变
+ */
+@Repository
+public class UserTagStatsRepository {
+
+    private static final String AGGREGATE =
+            "INSERT INTO user_tag_stats (user_id, tag_id, stat_date, try_count, ac_count) "
+                    + "SELECT utp.user_id, pt.tag_id, DATE(utp.attempt_time), COUNT(*), "
+                    + "SUM(CASE WHEN utp.result = 'AC' THEN 1 ELSE 0 END) "
+                    + "FROM user_try_problem utp JOIN problem_tags pt ON pt.problem_id = utp.problem_id ";
+
+    private static final String UPSERT =
+            " GROUP BY utp.user_id, pt.tag_id, DATE(utp.attempt_time) "
+                    + "ON DUPLICATE KEY UPDATE try_count = VALUES(try_count), ac_count = VALUES(ac_count)";
+
+    private static final String SUM_COLUMNS =
+            "t.name AS tag_name, SUM(s.try_count) AS try_count, SUM(s.ac_count) AS ac_count "
+                    + "FROM user_tag_stats s JOIN tag t ON t.id = s.tag_id ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 按标签求和的一行
+     *
+     * @param userId   用户ID，按用户组合计时为 null
+     * @param tag      题目标签名
+     * @param tryCount 尝试次数
+     * @param acCount  AC 提交次数
+     */
+    public record TagRow(Integer userId, String tag, long tryCount, long acCount) {
+    }
+
+    /**
+     * 重新聚合某用户在 [fromDay, toDay] 内各天的汇总行
+     *
+     * @param userId  用户ID
+     * @param fromDay 起始日期（含）
+     * @param toDay   结束日期（含）
+     * @return 受影响的行数
+     */
+    public int recompute(Integer userId, LocalDate fromDay, LocalDate toDay) {
+        return jdbcTemplate.update(
+                AGGREGATE + "WHERE utp.user_id = ? AND utp.attempt_time >= ? AND utp.attempt_time < ?" + UPSERT,
+                userId, fromDay.atStartOfDay(), toDay.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * 清空并按全部尝试记录与当前题目标签重建汇总表
+     *
+     * @return 写入的行数
+     */
+    public int rebuildAll() {
+        jdbcTemplate.update("DELETE FROM user_tag_stats");
+        return jdbcTemplate.update(AGGREGATE + UPSERT);
+    }
+
+    /**
+     * 汇总表是否为空
+     */
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM user_tag_stats LIMIT 1").isEmpty();
+    }
+
+    /**
+     * 某用户在 [fromDay, toDay] 内各题目标签的合计
+     */
+    public List<TagRow> sumByTag(Integer userId, LocalDate fromDay, LocalDate toDay) {
+        return jdbcTemplate.query(
+                "SELECT " + SUM_COLUMNS
+                        + "WHERE s.user_id = ? AND s.stat_date >= ? AND s.stat_date <= ? "
+                        + "GROUP BY t.name",
+                (rs, i) -> new TagRow(userId, rs.getString("tag_name"), rs.getLong("try_count"), rs.getLong("ac_count")),
+                userId, fromDay, toDay);
+    }
+
+    /**
+     * 带有某用户分组标签（user_tag）的全部用户在 [fromDay, toDay] 内各题目标签的合计
+     *
+     * @param perUser true 按（用户, 题目标签）分组，false 按题目标签合计全组
+     */
+    public List<TagRow> sumByTagForGroup(String groupName, LocalDate fromDay, LocalDate toDay, boolean perUser) {
+        return jdbcTemplate.query(
+                "SELECT " + (perUser ? "s.user_id, " : "") + SUM_COLUMNS
+                        + "WHERE s.user_id IN (SELECT uut.user_id FROM user_user_tag uut "
+                        + "JOIN user_tag g ON g.id = uut.tag_id WHERE g.name = ?) "
+                        + "AND s.stat_date >= ? AND s.stat_date <= ? "
+                        + "GROUP BY " + (perUser ? "s.user_id, " : "") + "t.name",
+                (rs, i) -> new TagRow(perUser ? rs.getInt("user_id") : null, rs.getString("tag_name"),
+                        rs.getLong("try_count"), rs.getLong("ac_count")),
+                groupName, fromDay, toDay);
+    }
+}
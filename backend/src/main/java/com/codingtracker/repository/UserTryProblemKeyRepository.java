@@ -0,0 +1,41 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.ProblemResult;
+import com.codingtracker.util.AttemptKeySet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 尝试记录去重键仓库：只查询唯一约束 uk_user_problem_time 涉及的列，
+ * 不加载实体及其关联，供刷新时按用户做增量比对
+ */
+@Repository
+public class UserTryProblemKeyRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 查询某用户在指定时间之后（含）已入库记录的去重键
+     *
+     * @param userId 用户ID
+     * @param since  起始时间
+     * @return 去重键集合
+     */
+    public AttemptKeySet findKeysSince(Integer userId, LocalDateTime since) {
+        AttemptKeySet keys = new AttemptKeySet();
+        jdbcTemplate.query(
+                "SELECT problem_id, attempt_time, result FROM user_try_problem WHERE user_id = ? AND attempt_time >= ?",
+                rs -> {
+                    keys.add(userId,
+                            rs.getLong("problem_id"),
+                            rs.getObject("attempt_time", LocalDateTime.class),
+                            ProblemResult.valueOf(rs.getString("result")));
+                },
+                userId, since);
+        return keys;
+    }
+}
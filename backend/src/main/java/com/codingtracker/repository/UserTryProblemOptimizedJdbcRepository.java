@@ -0,0 +1,324 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.dto.UserTryProblemDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 冗余表 user_try_problem_optimized 的增量维护：
+ * 用集合式 INSERT ... SELECT / UPDATE ... JOIN 在数据库内完成拼装，不经过 JPA 实体；
+ * 全量重建写入影子表后再原子切换；另提供按 (attempt_time, id) 游标分页的读取与流式导出
+ */
+@Repository
+public class UserTryProblemOptimizedJdbcRepository {
+
+    /**
+     * 单条语句 IN 列表的最大长度
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * 题目标签按名称排序后以逗号拼接，无标签时为空串
+     */
+    private static final String TAGS_OF_PROBLEM =
+            "SELECT COALESCE(GROUP_CONCAT(t.name ORDER BY t.name SEPARATOR ','), '') "
+                    + "FROM problem_tags pt JOIN tag t ON t.id = pt.tag_id WHERE pt.problem_id = p.id";
+
+    private static final String TABLE = "user_try_problem_optimized";
+    private static final String SHADOW_TABLE = TABLE + "_shadow";
+    private static final String OLD_TABLE = TABLE + "_old";
+
+    /**
+     * 全量重建时每条 INSERT ... SELECT 覆盖的尝试记录 ID 跨度
+     */
+    private static final long REBUILD_ID_SPAN = 50_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 为指定的尝试记录生成冗余行，已存在的（按 try_id 唯一）自动跳过
+     *
+     * @param tryIds user_try_problem 主键
+     * @return 新插入的行数
+     */
+    public int insertForTries(Collection<Long> tryIds) {
+        int inserted = 0;
+        for (List<Long> chunk : chunks(tryIds)) {
+            String sql = insertSelect(TABLE) + "WHERE utp.id IN (" + placeholders(chunk.size()) + ")";
+            inserted += jdbcTemplate.update(sql, chunk.toArray());
+        }
+        return inserted;
+    }
+
+    /**
+     * 为线上表中缺失冗余行的全部尝试记录补写（反连接），按 ID 区间分段执行。
+     * ID 由序列按块（allocationSize=50）预分配，并发事务的提交顺序与 ID 大小无关，
+     * 因此不能只补写某个 ID 之后的记录
+     *
+     * @return 新插入的行数
+     */
+    public int insertMissingTries() {
+        int inserted = 0;
+        long maxTryId = maxTryId();
+        for (long from = 0; from < maxTryId; from += REBUILD_ID_SPAN) {
+            inserted += jdbcTemplate.update(insertSelect(TABLE) + "WHERE utp.id > ? AND utp.id <= ? "
+                            + "AND NOT EXISTS (SELECT 1 FROM " + TABLE + " o WHERE o.try_id = utp.id)",
+                    from, Math.min(from + REBUILD_ID_SPAN, maxTryId));
+        }
+        return inserted;
+    }
+
+    /**
+     * 当前尝试记录的最大 ID，空表为 0
+     */
+    public long maxTryId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user_try_problem", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    /**
+     * 删除线上表上已废弃的索引（ddl-auto=update 只会新建索引，不会删除），不存在时跳过
+     *
+     * @param indexName 索引名
+     * @return 是否执行了删除
+     */
+    public boolean dropIndexIfExists(String indexName) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                Integer.class, TABLE, indexName);
+        if (count == null || count == 0) {
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP INDEX " + indexName);
+        return true;
+    }
+
+    /**
+     * 以线上表结构新建空的影子表（残留的同名表先删除）
+     */
+    public void createShadowTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + SHADOW_TABLE + " LIKE " + TABLE);
+    }
+
+    /**
+     * 按 ID 区间分段把 (0, maxTryId] 内的尝试记录写入影子表，每段一条集合式语句
+     *
+     * @param maxTryId 重建覆盖的最大尝试记录 ID
+     * @return 写入的行数
+     */
+    public long fillShadowTable(long maxTryId) {
+        long rows = 0;
+        for (long from = 0; from < maxTryId; from += REBUILD_ID_SPAN) {
+            rows += jdbcTemplate.update(insertSelect(SHADOW_TABLE) + "WHERE utp.id > ? AND utp.id <= ?",
+                    from, Math.min(from + REBUILD_ID_SPAN, maxTryId));
+        }
+        return rows;
+    }
+
+    /**
+     * 用一条 RENAME TABLE 原子地交换线上表与影子表，随后删除旧表。
+     * RENAME 期间读者会短暂等待元数据锁，但不会看到空表
+     *
+     * @return RENAME 语句耗时（毫秒），即读者可见的切换窗口
+     */
+    public long swapShadowTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + OLD_TABLE);
+        long start = System.nanoTime();
+        jdbcTemplate.execute("RENAME TABLE " + TABLE + " TO " + OLD_TABLE + ", " + SHADOW_TABLE + " TO " + TABLE);
+        long swapMillis = (System.nanoTime() - start) / 1_000_000;
+        jdbcTemplate.execute("DROP TABLE " + OLD_TABLE);
+        return swapMillis;
+    }
+
+    /**
+     * 按 (attempt_time, id) 倒序读取某用户在游标之后的一页记录。
+     * 先只在索引 idx_user_time (username, attempt_time[, id]) 上定位本页的 id（覆盖索引，不回表），再按 id 取整行，
+     * 任意深度的页代价相同
+     *
+     * @param username   用户名
+     * @param beforeTime 游标时间，null 表示第一页
+     * @param beforeId   游标 id（同一时间内的次序）
+     * @param limit      本页条数
+     */
+    public List<Row> findPageByUsername(String username, LocalDateTime beforeTime, long beforeId, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(username);
+        String seek = "";
+        if (beforeTime != null) {
+            seek = "AND (attempt_time < ? OR (attempt_time = ? AND id < ?)) ";
+            args.addAll(List.of(beforeTime, beforeTime, beforeId));
+        }
+        args.add(limit);
+        String sql = "SELECT o.id, o.username, o.problem_id, o.oj_name, o.pid, o.problem_name, o.problem_type, "
+                + "o.points, o.url, o.tags, o.result, o.attempt_time "
+                + "FROM (SELECT id FROM " + TABLE + " WHERE username = ? " + seek
+                + "ORDER BY attempt_time DESC, id DESC LIMIT ?) k "
+                + "JOIN " + TABLE + " o ON o.id = k.id "
+                + "ORDER BY o.attempt_time DESC, o.id DESC";
+        return jdbcTemplate.query(sql, (rs, i) -> new Row(
+                rs.getLong("id"),
+                new UserTryProblemDTO(
+                        rs.getString("username"),
+                        rs.getLong("problem_id"),
+                        rs.getString("oj_name"),
+                        rs.getString("pid"),
+                        rs.getString("problem_name"),
+                        rs.getString("problem_type"),
+                        rs.getObject("points", Double.class),
+                        rs.getString("url"),
+                        tagsToSet(rs.getString("tags")),
+                        rs.getString("result"),
+                        rs.getObject("attempt_time", LocalDateTime.class))),
+                args.toArray());
+    }
+
+    /**
+     * 某用户的记录总数（只扫描索引）
+     */
+    public long countByUsername(String username) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + TABLE + " WHERE username = ?", Long.class, username);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 导出条件，各项为 null 或空表示不限制
+     *
+     * @param usernames 用户名
+     * @param userTags  用户标签名（用户带有其中任一标签即可）
+     * @param platforms OJ 名称
+     * @param from      起始时间（含）
+     * @param to        结束时间（不含）
+     * @param result    尝试结果
+     */
+    public record ExportFilter(Collection<String> usernames, Collection<String> userTags,
+                               Collection<String> platforms, LocalDateTime from, LocalDateTime to,
+                               String result) {
+    }
+
+    /**
+     * 按条件流式读取冗余表，按用户名、时间顺序逐行回调，结果集不在内存中整体物化。
+     * MySQL 驱动只有在只进、只读结果集且 fetchSize 为 Integer.MIN_VALUE 时才逐行流式返回，
+     * 读取期间独占一个连接，回调中不能再用同一连接执行其他语句
+     *
+     * @param filter  导出条件
+     * @param handler 每行的处理
+     */
+    public void streamForExport(ExportFilter filter, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.username, o.oj_name, o.pid, o.problem_name, o.problem_type, o.points, o.url, "
+                        + "o.tags, o.result, o.attempt_time FROM " + TABLE + " o WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.usernames() != null && !filter.usernames().isEmpty()) {
+            sql.append(" AND o.username IN (").append(placeholders(filter.usernames().size())).append(")");
+            args.addAll(filter.usernames());
+        }
+        if (filter.userTags() != null && !filter.userTags().isEmpty()) {
+            sql.append(" AND o.username IN (SELECT u.username FROM `user` u ")
+                    .append("JOIN user_user_tag uut ON uut.user_id = u.id ")
+                    .append("JOIN user_tag t ON t.id = uut.tag_id ")
+                    .append("WHERE t.name IN (").append(placeholders(filter.userTags().size())).append("))");
+            args.addAll(filter.userTags());
+        }
+        if (filter.platforms() != null && !filter.platforms().isEmpty()) {
+            sql.append(" AND o.oj_name IN (").append(placeholders(filter.platforms().size())).append(")");
+            args.addAll(filter.platforms());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND o.attempt_time >= ?");
+            args.add(filter.from());
+        }
+        if (filter.to() != null) {
+            sql.append(" AND o.attempt_time < ?");
+            args.add(filter.to());
+        }
+        if (filter.result() != null) {
+            sql.append(" AND o.result = ?");
+            args.add(filter.result());
+        }
+        // 与 idx_user_time（末尾隐含主键 id）的列顺序一致，按索引顺序扫描，无需排序
+        sql.append(" ORDER BY o.username, o.attempt_time, o.id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * 游标分页读出的一行：冗余表主键用于生成下一页游标
+     */
+    public record Row(long id, UserTryProblemDTO dto) {
+    }
+
+    private static Set<String> tagsToSet(String tags) {
+        Set<String> set = new LinkedHashSet<>();
+        if (tags == null || tags.isBlank()) return set;
+        Arrays.stream(tags.split(",")).map(String::trim).forEach(set::add);
+        return set;
+    }
+
+    private static String insertSelect(String table) {
+        return "INSERT IGNORE INTO " + table + " "
+                + "(try_id, username, problem_id, oj_name, pid, problem_name, problem_type, points, url, "
+                + "result, attempt_time, tags) "
+                + "SELECT utp.id, u.username, p.id, p.oj_name, p.pid, p.name, p.type, p.points, p.url, "
+                + "utp.result, utp.attempt_time, (" + TAGS_OF_PROBLEM + ") "
+                + "FROM user_try_problem utp "
+                + "JOIN `user` u ON u.id = utp.user_id "
+                + "JOIN extoj_pb_info p ON p.id = utp.problem_id ";
+    }
+
+    /**
+     * 按 problem_tags 的当前内容刷新指定题目在冗余表中的标签列，只改写发生变化的行
+     *
+     * @param problemIds extoj_pb_info 主键
+     * @return 被更新的行数
+     */
+    public int refreshTags(Collection<Long> problemIds) {
+        int updated = 0;
+        for (List<Long> chunk : chunks(problemIds)) {
+            String sql = "UPDATE user_try_problem_optimized o "
+                    + "JOIN (SELECT p.id AS problem_id, (" + TAGS_OF_PROBLEM + ") AS tags "
+                    + "FROM extoj_pb_info p WHERE p.id IN (" + placeholders(chunk.size()) + ")) agg "
+                    + "ON agg.problem_id = o.problem_id "
+                    + "SET o.tags = agg.tags "
+                    + "WHERE NOT (o.tags <=> agg.tags)";
+            updated += jdbcTemplate.update(sql, chunk.toArray());
+        }
+        return updated;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += CHUNK_SIZE) {
+            chunks.add(all.subList(i, Math.min(i + CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
@@ -90,12 +90,6 @@ public interface UserTryProblemRepository extends JpaRepository<UserTryProblem,
         @Query("SELECT utp FROM UserTryProblem utp WHERE utp.userOj.id = :userOjId")
         Page<UserTryProblem> findByUserOjIdWithProblemAndTags(@Param("userOjId") Integer userOjId, Pageable pageable);
 
-        // 根据用户的所有OJ账号查询题目尝试记录
-        @EntityGraph(attributePaths = { "extOjPbInfo", "extOjPbInfo.tags" })
-        @Query("SELECT utp FROM UserTryProblem utp WHERE utp.userOj.user.id = :userId OR (utp.userOj IS NULL AND utp.user.id = :userId)")
-        Page<UserTryProblem> findByUserIdIncludingOjAccountsWithProblemAndTags(@Param("userId") Long userId,
-                        Pageable pageable);
-
         // 统计用户在指定平台的OJ账号数量
         @Query("SELECT COUNT(DISTINCT u.userOj.id) FROM UserTryProblem u WHERE u.user.id = :userId AND u.ojName = :platform AND u.userOj IS NOT NULL")
         long countDistinctOjAccountsByUserAndPlatform(@Param("userId") Integer userId,
@@ -0,0 +1,61 @@
+package com.codingtracker.security;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的吊销存储，仅适用于单实例部署或本地开发（security.revocation.store=memory）
+ */
+@Component
+@ConditionalOnProperty(name = "security.revocation.store", havingValue = "memory")
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private record Revocation(Instant revokedAt, Instant expiresAt) {
+    }
+
+    private final Map<String, Revocation> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Instant> epochs = new ConcurrentHashMap<>();
+
+    @Override
+    public void revokeToken(String tokenId, String username, Instant expiresAt) {
+        tokens.putIfAbsent(tokenId, new Revocation(Instant.now(), expiresAt));
+    }
+
+    @Override
+    public void revokeIssuedBefore(String username, Instant notBefore) {
+        epochs.merge(username, notBefore, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    @Override
+    public List<RevokedTokenEntry> findRevokedSince(Instant since) {
+        Instant now = Instant.now();
+        return tokens.entrySet().stream()
+                .filter(e -> e.getValue().revokedAt().isAfter(since) && e.getValue().expiresAt().isAfter(now))
+                .map(e -> new RevokedTokenEntry(e.getKey(), e.getValue().expiresAt()))
+                .toList();
+    }
+
+    @Override
+    public Map<String, Instant> findEpochsSince(Instant since) {
+        Map<String, Instant> result = new HashMap<>();
+        epochs.forEach((username, notBefore) -> {
+            if (notBefore.isAfter(since)) {
+                result.put(username, notBefore);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        int before = tokens.size();
+        tokens.values().removeIf(r -> !r.expiresAt().isAfter(now));
+        return before - tokens.size();
+    }
+}
@@ -0,0 +1,61 @@
+package com.codingtracker.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于数据库表 revoked_token / user_token_epoch 的吊销存储，多个后端实例共享
+ */
+@Repository
+@ConditionalOnProperty(name = "security.revocation.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcTokenRevocationStore implements TokenRevocationStore {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void revokeToken(String tokenId, String username, Instant expiresAt) {
+        jdbcTemplate.update("INSERT IGNORE INTO revoked_token (token_id, username, revoked_at, expires_at) "
+                        + "VALUES (?, ?, ?, ?)",
+                tokenId, username, Timestamp.from(Instant.now()), Timestamp.from(expiresAt));
+    }
+
+    @Override
+    public void revokeIssuedBefore(String username, Instant notBefore) {
+        jdbcTemplate.update("INSERT INTO user_token_epoch (username, not_before) VALUES (?, ?) "
+                        + "ON DUPLICATE KEY UPDATE not_before = GREATEST(not_before, VALUES(not_before))",
+                username, Timestamp.from(notBefore));
+    }
+
+    @Override
+    public List<RevokedTokenEntry> findRevokedSince(Instant since) {
+        return jdbcTemplate.query("SELECT token_id, expires_at FROM revoked_token "
+                        + "WHERE revoked_at > ? AND expires_at > ?",
+                (rs, i) -> new RevokedTokenEntry(rs.getString(1), rs.getTimestamp(2).toInstant()),
+                Timestamp.from(since), Timestamp.from(Instant.now()));
+    }
+
+    @Override
+    public Map<String, Instant> findEpochsSince(Instant since) {
+        Map<String, Instant> epochs = new HashMap<>();
+        jdbcTemplate.query("SELECT username, not_before FROM user_token_epoch WHERE not_before > ?",
+                rs -> {
+                    epochs.put(rs.getString(1), rs.getTimestamp(2).toInstant());
+                },
+                Timestamp.from(since));
+        return epochs;
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        return jdbcTemplate.update("DELETE FROM revoked_token WHERE expires_at <= ?", Timestamp.from(now));
+    }
+}
@@ -2,13 +2,10 @@ package com.codingtracker.security;
 
 import com.codingtracker.service.TokenBlacklistCache;
 import com.codingtracker.util.JwtUtils;
-import com.codingtracker.repository.UserRepository;
-import com.codingtracker.model.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -24,20 +21,19 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final TokenBlacklistCache tokenBlacklistCache;
-    private final UserRepository userRepository;
+    private final UserAuthorityCache userAuthorityCache;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // 构造器注入
-    public JwtAuthenticationFilter(TokenBlacklistCache tokenBlacklistCache, UserRepository userRepository) {
+    public JwtAuthenticationFilter(TokenBlacklistCache tokenBlacklistCache, UserAuthorityCache userAuthorityCache) {
         this.tokenBlacklistCache = tokenBlacklistCache;
-        this.userRepository = userRepository;
+        this.userAuthorityCache = userAuthorityCache;
     }
 
     @Override
@@ -47,33 +43,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String token = getTokenFromRequest(request);
 
         if (token != null) {
-            // 先判断是否在黑名单
-            if (tokenBlacklistCache.isTokenBlacklisted(token)) {
-                // 返回401和JSON格式的错误信息
-                sendUnauthorizedResponse(response, "Token已失效，请重新登录");
-                return;
-            }
-
             try {
-                Jws<Claims> claimsJws = Jwts.parserBuilder()
-                        .setSigningKey(JwtUtils.getSecretKey())
-                        .build()
-                        .parseClaimsJws(token);
+                Jws<Claims> claimsJws = JwtUtils.parseToken(token);
 
-                String username = claimsJws.getBody().getSubject();
-
-                // 从数据库查询用户角色信息
-                Optional<User> userOpt = userRepository.findByUsername(username);
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
+                // 判断是否已被吊销
+                if (tokenBlacklistCache.isTokenBlacklisted(claimsJws.getBody())) {
+                    // 返回401和JSON格式的错误信息
+                    sendUnauthorizedResponse(response, "Token已失效，请重新登录");
+                    return;
+                }
 
-                    // 将用户角色转换为Spring Security的权限格式
-                    List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
-                            .map(role -> new SimpleGrantedAuthority("ROLE_" + role.name()))
-                            .collect(Collectors.toList());
+                String username = claimsJws.getBody().getSubject();
 
+                // 查询用户角色信息（短期缓存，角色变更时由 UserService 失效）
+                Optional<List<SimpleGrantedAuthority>> authoritiesOpt = userAuthorityCache.getAuthorities(username);
+                if (authoritiesOpt.isPresent()) {
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            username, null, authorities);
+                            username, null, authoritiesOpt.get());
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 } else {
                     logger.warn("User not found: " + username);
@@ -71,6 +71,9 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.PUT, "/api/email/modifyPassword").permitAll()
                         // 允许访问头像资源
                         .requestMatchers("/avatars/**").permitAll()
+                        // 健康检查公开，指标等其余 actuator 端点仅管理员可访问（Prometheus 以管理员 JWT 抓取）
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAnyRole("ADMIN", "SUPER_ADMIN")
                         // 其它接口都需要走 JWT 认证
                         .anyRequest().authenticated())
                 // 在 UsernamePasswordFilter 之前插入你的 JWT 校验过滤器
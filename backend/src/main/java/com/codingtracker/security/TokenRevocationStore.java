@@ -0,0 +1,49 @@
+package com.codingtracker.security;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token 吊销记录的共享存储。
+ * 各节点把吊销写入存储，并定期拉取其他节点写入的增量到本地索引；
+ * 实现需保证写入幂等，拉取结果允许与上次重叠。
+ */
+public interface TokenRevocationStore {
+
+    /**
+     * 吊销的 Token
+     *
+     * @param tokenId   JWT 的 jti
+     * @param expiresAt Token 原本的过期时间
+     */
+    record RevokedTokenEntry(String tokenId, Instant expiresAt) {
+    }
+
+    /**
+     * 吊销单个 Token
+     */
+    void revokeToken(String tokenId, String username, Instant expiresAt);
+
+    /**
+     * 使用户在 notBefore 之前签发的 Token 全部失效
+     */
+    void revokeIssuedBefore(String username, Instant notBefore);
+
+    /**
+     * 拉取 since 之后吊销、且尚未过期的 Token
+     */
+    List<RevokedTokenEntry> findRevokedSince(Instant since);
+
+    /**
+     * 拉取 since 之后更新过的用户纪元（用户名 → notBefore）
+     */
+    Map<String, Instant> findEpochsSince(Instant since);
+
+    /**
+     * 删除 now 之前已过期的吊销记录
+     *
+     * @return 删除的条数
+     */
+    int purgeExpired(Instant now);
+}
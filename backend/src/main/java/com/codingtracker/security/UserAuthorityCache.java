@@ -0,0 +1,106 @@
+package com.codingtracker.security;
+
+import com.codingtracker.model.User;
+import com.codingtracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 用户名 → 权限列表 的短期缓存，避免 JWT 过滤器每个请求都查询用户和角色表。
+ * 条目数和存活时间有上限；UserService 修改角色、启用状态或删除用户时在事务提交后主动失效。
+ * 失效只作用于本实例，多实例部署时其他实例依赖存活时间过期，
+ * 权限变更最多延迟 security.authority-cache.ttl-seconds 生效，多实例时应保持较短的存活时间。
+ */
+@Component
+public class UserAuthorityCache {
+
+    private record Entry(List<SimpleGrantedAuthority> authorities, long expiresAtMillis) {
+    }
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    public UserAuthorityCache(UserRepository userRepository,
+            @Value("${security.authority-cache.max-entries:1024}") int maxEntries,
+            @Value("${security.authority-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取用户的权限列表，缓存未命中时查询数据库
+     *
+     * @param username 用户名
+     * @return 权限列表，用户不存在时为空
+     */
+    public Optional<List<SimpleGrantedAuthority>> getAuthorities(String username) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry != null && entry.expiresAtMillis() > now) {
+                return Optional.of(entry.authorities());
+            }
+        }
+
+        // 不存在的用户不缓存，避免注册后仍被拒绝
+        Optional<User> userOpt = userRepository.findByUsername(username);
+        if (userOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        List<SimpleGrantedAuthority> authorities = userOpt.get().getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.name()))
+                .toList();
+        synchronized (entries) {
+            entries.put(username, new Entry(authorities, now + ttlMillis));
+        }
+        return Optional.of(authorities);
+    }
+
+    /**
+     * 使某个用户的缓存失效
+     *
+     * @param username 用户名
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * 在当前事务提交后使某个用户的缓存失效，没有事务时立即失效。
+     * 提交前失效的话，并发请求可能在提交前重新加载旧的权限并缓存到过期
+     *
+     * @param username 用户名
+     */
+    public void invalidateAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(username);
+            }
+        });
+    }
+}
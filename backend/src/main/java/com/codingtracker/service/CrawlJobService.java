@@ -0,0 +1,234 @@
+package com.codingtracker.service;
+
+import com.codingtracker.crawler.CrawlPriority;
+import com.codingtracker.crawler.CrawlScheduler;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.CrawlJobRepository;
+import com.codingtracker.repository.CrawlJobRepository.ClaimedJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 持久化抓取任务（crawl_job）的调度与执行。
+ * 每个实例以随机的实例ID认领任务，按各平台的并发上限向抓取调度器提交，执行中定期续约；
+ * 租约过期的任务（实例重启或宕机）会被任一实例回收后重新执行，失败任务按次数退避重试。
+ * 同一用户同一平台在未完成期间的重复请求合并为一个任务。
+ * 配置项：crawler.jobs.poll-interval-ms、lease-seconds、max-attempts、retry-backoff-seconds、retention-days。
+ * 指标：crawler.jobs.pending（全局待执行数）、crawler.jobs.inflight（本实例各平台执行数）、
+ * crawler.jobs.finished（按平台与结果计数）
+ */
+@Service
+public class CrawlJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlJobService.class);
+
+    /**
+     * 入队结果
+     *
+     * @param coalesced 是否全部合并到了已有的未完成任务
+     * @param queued    当前待执行的任务数
+     */
+    public record Ticket(boolean coalesced, int queued) {
+    }
+
+    private final CrawlJobRepository jobRepository;
+    private final ExtOjService extOjService;
+    private final CrawlScheduler crawlScheduler;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+    private final int retryBackoffSeconds;
+    private final int retentionDays;
+    private final MeterRegistry meterRegistry;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<OJPlatform, AtomicInteger> inflight = new EnumMap<>(OJPlatform.class);
+
+    public CrawlJobService(CrawlJobRepository jobRepository,
+            ExtOjService extOjService,
+            CrawlScheduler crawlScheduler,
+            @Value("${crawler.jobs.lease-seconds:300}") int leaseSeconds,
+            @Value("${crawler.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${crawler.jobs.retry-backoff-seconds:60}") int retryBackoffSeconds,
+            @Value("${crawler.jobs.retention-days:7}") int retentionDays,
+            MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.extOjService = extOjService;
+        this.crawlScheduler = crawlScheduler;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffSeconds = retryBackoffSeconds;
+        this.retentionDays = retentionDays;
+        this.meterRegistry = meterRegistry;
+        for (OJPlatform platform : OJPlatform.values()) {
+            AtomicInteger running = new AtomicInteger();
+            inflight.put(platform, running);
+            Gauge.builder("crawler.jobs.inflight", running, AtomicInteger::get)
+                    .description("本实例正在执行的抓取任务数")
+                    .tag("platform", platform.name())
+                    .register(meterRegistry);
+        }
+        // 每次采集查询一次数据库，采集间隔通常在十秒以上
+        Gauge.builder("crawler.jobs.pending", jobRepository, CrawlJobRepository::countPending)
+                .description("待执行的抓取任务数（所有实例共享的队列深度）")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交一个用户在若干平台上的按需刷新任务，并立即尝试派发
+     *
+     * @param userId    用户ID
+     * @param platforms 要刷新的平台
+     * @param priority  排队优先级
+     * @return 入队结果
+     */
+    public Ticket enqueue(Integer userId, Collection<OJPlatform> platforms, CrawlPriority priority) {
+        boolean coalesced = true;
+        for (OJPlatform platform : platforms) {
+            if (jobRepository.enqueue(userId, platform, priority.ordinal())) {
+                coalesced = false;
+            }
+        }
+        dispatch();
+        return new Ticket(coalesced, jobRepository.countPending());
+    }
+
+    /**
+     * 各状态的任务数
+     */
+    public Map<String, Integer> statusCounts() {
+        return jobRepository.countByStatus();
+    }
+
+    /**
+     * 按各平台的空闲并发认领任务并提交给抓取调度器
+     */
+    @Scheduled(fixedDelayString = "${crawler.jobs.poll-interval-ms:2000}")
+    public synchronized void dispatch() {
+        for (OJPlatform platform : extOjService.supportedPlatforms()) {
+            AtomicInteger running = inflight.get(platform);
+            int free = crawlScheduler.maxConcurrency(platform) - running.get();
+            if (free <= 0) {
+                continue;
+            }
+            List<ClaimedJob> jobs;
+            try {
+                jobs = jobRepository.claim(platform, owner, free, leaseSeconds);
+            } catch (Exception e) {
+                logger.error("认领平台 {} 的抓取任务失败: {}", platform, e.getMessage());
+                continue;
+            }
+            for (ClaimedJob job : jobs) {
+                running.incrementAndGet();
+                CrawlPriority priority = CrawlPriority.values()[job.priority()];
+                crawlScheduler.submit(platform, priority, () -> execute(job))
+                        .whenComplete((r, e) -> running.decrementAndGet());
+            }
+        }
+    }
+
+    private Void execute(ClaimedJob job) {
+        int added;
+        try {
+            added = extOjService.runCrawlJob(job.userId(), job.platform());
+        } catch (Exception e) {
+            logger.warn("抓取任务 {}（用户 {}，平台 {}）失败: {}", job.id(), job.userId(), job.platform(), e.getMessage());
+            jobRepository.fail(job.id(), owner, String.valueOf(e.getMessage()), maxAttempts, retryBackoffSeconds);
+            countFinished(job, "failed");
+            finishRunIfDone(job.runId());
+            return null;
+        }
+
+        if (!jobRepository.complete(job.id(), owner, added)) {
+            logger.warn("抓取任务 {} 的租约已失效，结果已写入但状态未更新", job.id());
+        }
+        countFinished(job, "done");
+        if (job.runId() == null) {
+            if (added > 0) {
+                extOjService.publishRefreshed(added);
+            }
+        } else {
+            finishRunIfDone(job.runId());
+        }
+        return null;
+    }
+
+    private void countFinished(ClaimedJob job, String outcome) {
+        Counter.builder("crawler.jobs.finished")
+                .tag("platform", job.platform().name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 批次最后一个任务结束时发布一次刷新完成通知
+     */
+    private void finishRunIfDone(String runId) {
+        if (runId == null || jobRepository.countActiveInRun(runId) > 0) {
+            return;
+        }
+        int added = jobRepository.sumAddedInRun(runId);
+        extOjService.publishRefreshed(added);
+        logger.info("全量刷新批次 {} 完成，新增 {} 条记录", runId, added);
+    }
+
+    /**
+     * 为本实例执行中的任务续约
+     */
+    @Scheduled(fixedDelayString = "${crawler.jobs.renew-interval-ms:60000}")
+    public void renewLeases() {
+        boolean busy = inflight.values().stream().anyMatch(n -> n.get() > 0);
+        if (busy) {
+            jobRepository.renewLeases(owner, leaseSeconds);
+        }
+    }
+
+    /**
+     * 回收租约过期的任务
+     */
+    @Scheduled(fixedDelayString = "${crawler.jobs.reap-interval-ms:60000}")
+    public void releaseExpiredLeases() {
+        int released = jobRepository.releaseExpired(maxAttempts);
+        if (released > 0) {
+            logger.warn("回收了 {} 个租约过期的抓取任务", released);
+        }
+    }
+
+    /**
+     * 清理过期的已结束任务
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void purgeFinished() {
+        int purged = jobRepository.purgeFinished(retentionDays);
+        logger.info("清理了 {} 个已结束的抓取任务", purged);
+    }
+
+    /**
+     * 正常停机时交还本实例持有的任务，其他实例或重启后的本实例可立即继续
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            int released = jobRepository.releaseOwned(owner);
+            if (released > 0) {
+                logger.info("停机交还了 {} 个执行中的抓取任务", released);
+            }
+        } catch (Exception e) {
+            logger.warn("停机交还抓取任务失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.repository.UserPlatformDailyStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 日汇总统计服务：维护 user_platform_daily_stats，并用它回答任意时间区间的排行榜查询。
+ * 区间中完整覆盖的日期直接对汇总行求和，两端不足一天的部分才扫描原始尝试记录
+ */
+@Service
+public class DailyStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyStatsService.class);
+
+    /**
+     * 结束时间不早于该时刻即视为覆盖当天全天（前端以 23:59:59 表示一天结束）
+     */
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    private final UserPlatformDailyStatsRepository statsRepo;
+
+    public DailyStatsService(UserPlatformDailyStatsRepository statsRepo) {
+        this.statsRepo = statsRepo;
+    }
+
+    /**
+     * 按新增尝试记录重新聚合受影响的（用户, 平台, 日期）汇总行，须在新记录写入数据库之后调用
+     *
+     * @param added 新增的尝试记录
+     */
+    @Transactional
+    public void applyNewTries(Collection<UserTryProblem> added) {
+        Map<Integer, Map<OJPlatform, List<LocalDate>>> daysByUser = added.stream()
+                .filter(t -> t.getOjName() != null)
+                .collect(Collectors.groupingBy(
+                        t -> t.getUser().getId(),
+                        Collectors.groupingBy(UserTryProblem::getOjName,
+                                Collectors.mapping(t -> t.getAttemptTime().toLocalDate(), Collectors.toList()))));
+        daysByUser.forEach((userId, byPlatform) -> byPlatform.forEach((platform, days) ->
+                statsRepo.recompute(userId, platform, Collections.min(days), Collections.max(days))));
+        logger.info("已更新 {} 位用户的日汇总统计", daysByUser.size());
+    }
+
+    /**
+     * 清空并全量重建日汇总表
+     *
+     * @return 写入的汇总行数
+     */
+    @Transactional
+    public int rebuildAll() {
+        int rows = statsRepo.rebuildAll();
+        logger.info("日汇总表重建完成，共 {} 行", rows);
+        return rows;
+    }
+
+    /**
+     * 汇总表为空时（首次部署）全量构建
+     */
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (statsRepo.isEmpty()) {
+            logger.info("日汇总表为空，开始全量构建");
+            rebuildAll();
+        }
+    }
+
+    /**
+     * 统计 [start, end] 内每个用户每个平台的尝试数或 AC 数
+     *
+     * @param start  起始时间（含）
+     * @param end    结束时间（含）
+     * @param acOnly true 统计 AC 次数，false 统计尝试次数
+     * @return [userId, OJPlatform, Long]，与 UserTryProblemRepository 的分组统计格式一致
+     */
+    public List<Object[]> countByUserAndPlatform(LocalDateTime start, LocalDateTime end, boolean acOnly) {
+        LocalDate firstFullDay = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? start.toLocalDate()
+                : start.toLocalDate().plusDays(1);
+        LocalDate endFullDay = end.toLocalTime().isBefore(END_OF_DAY)
+                ? end.toLocalDate()
+                : end.toLocalDate().plusDays(1);
+
+        if (!firstFullDay.isBefore(endFullDay)) {
+            // 不足一个完整日，直接扫描原始记录
+            return statsRepo.countRawByUserAndPlatform(start, end, true, acOnly);
+        }
+
+        List<Object[]> rows = new ArrayList<>(statsRepo.sumByUserAndPlatform(firstFullDay, endFullDay, acOnly));
+        rows.addAll(statsRepo.countRawByUserAndPlatform(start, firstFullDay.atStartOfDay(), false, acOnly));
+        rows.addAll(statsRepo.countRawByUserAndPlatform(endFullDay.atStartOfDay(), end, true, acOnly));
+        return merge(rows);
+    }
+
+    private static List<Object[]> merge(List<Object[]> rows) {
+        Map<List<Object>, Object[]> merged = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            merged.merge(List.of(row[0], row[1]), row,
+                    (a, b) -> new Object[] { a[0], a[1], (Long) a[2] + (Long) b[2] });
+        }
+        return new ArrayList<>(merged.values());
+    }
+}
@@ -1,18 +1,23 @@
 package com.codingtracker.service;
 
+import com.codingtracker.dto.OptimizedRebuildReport;
 import com.codingtracker.dto.UserTryProblemDTO;
-import com.codingtracker.model.UserTryProblemOptimized;
+import com.codingtracker.repository.UserTryProblemOptimizedJdbcRepository;
 import com.codingtracker.repository.UserTryProblemOptimizedRepository;
-import com.codingtracker.repository.UserTryProblemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -21,60 +26,112 @@ import java.util.stream.Collectors;
 public class DataMigrationService {
 
     private final UserTryProblemOptimizedRepository optimizedRepo;
-    private final UserTryProblemRepository tryRepo;
+    private final UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo;
     private final AtomicBoolean isUpdating = new AtomicBoolean(false);
+    // 重建期间增量同步刷新过标签的题目，切换后需在新表上重放
+    private final Set<Long> retaggedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final Timer incrementalTimer;
+    private final Timer rebuildTimer;
 
     @Autowired
     public DataMigrationService(UserTryProblemOptimizedRepository optimizedRepo,
-                                UserTryProblemRepository tryRepo) {
+                                UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo,
+                                MeterRegistry meterRegistry) {
         this.optimizedRepo = optimizedRepo;
-        this.tryRepo = tryRepo;
+        this.optimizedJdbcRepo = optimizedJdbcRepo;
+        this.incrementalTimer = Timer.builder("optimized.sync")
+                .description("冗余表增量同步耗时")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("optimized.rebuild")
+                .description("冗余表全量重建耗时")
+                .register(meterRegistry);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void rebuildUserTryProblemOptimizedTable() {
+    /**
+     * 增量维护冗余表：为新增的尝试记录补写冗余行，并刷新本次涉及题目的标签列。
+     * 代价与增量大小成正比，读者始终能看到完整的表。
+     * 调用前新增记录须已 flush 到数据库。
+     * 全量重建期间标签只刷新到旧表，涉及的题目会被记下，切换后在新表上重新刷新。
+     *
+     * @param newTryIds  新增尝试记录的ID
+     * @param problemIds 本次抓取涉及（标签可能变化）的题目ID
+     */
+    @Transactional
+    public void applyIncrementalChanges(Collection<Long> newTryIds, Collection<Long> problemIds) {
+        long start = System.nanoTime();
+        if (!problemIds.isEmpty()) {
+            recordRetagsDuringRebuild(problemIds);
+        }
+        int inserted = newTryIds.isEmpty() ? 0 : optimizedJdbcRepo.insertForTries(newTryIds);
+        int retagged = problemIds.isEmpty() ? 0 : optimizedJdbcRepo.refreshTags(problemIds);
+        incrementalTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("【DataMigration】增量同步冗余表：新增 {} 行，更新标签 {} 行", inserted, retagged);
+    }
+
+    /**
+     * 重建进行中时记下本次刷新标签的题目。
+     * 在重建开始前调用、提交时重建已开始的事务，其标签变更同样可能晚于影子表对该区间的复制，
+     * 因此提交后再检查一次
+     */
+    private void recordRetagsDuringRebuild(Collection<Long> problemIds) {
+        if (isUpdating.get()) {
+            retaggedDuringRebuild.addAll(problemIds);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(problemIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (isUpdating.get()) {
+                        retaggedDuringRebuild.addAll(ids);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 全量重建冗余表（影子表模式）：在影子表中用分段的 INSERT ... SELECT 构建完整数据，
+     * 再用 RENAME TABLE 原子切换，重建期间线上表保持可读。
+     * 包含 DDL（隐式提交），不能在事务中调用。
+     *
+     * @return 重建耗时与切换窗口
+     */
+    public OptimizedRebuildReport rebuildUserTryProblemOptimizedTable() {
         if (!isUpdating.compareAndSet(false, true)) {
             throw new IllegalStateException("冗余表正在重建中，请稍后重试");
         }
 
-        log.info("【DataMigration】开始重建冗余表");
+        log.info("【DataMigration】开始重建冗余表（影子表模式）");
+        long start = System.nanoTime();
+        retaggedDuringRebuild.clear();
 
         try {
-            optimizedRepo.deleteAllInBatch();
-
-            List<UserTryProblemDTO> dtos = tryRepo.findAll()
-                .stream()
-                .map(utp -> new UserTryProblemDTO(utp, utp.getUser().getUsername()))
-                .collect(Collectors.toList());
-
-            List<UserTryProblemOptimized> records = dtos.stream()
-                .map(dto -> UserTryProblemOptimized.builder()
-                    .username(dto.getUsername())
-                    .problemId(dto.getProblemId())
-                    .ojName(dto.getOjName())
-                    .pid(dto.getPid())
-                    .problemName(dto.getName())
-                    .problemType(dto.getType())
-                    .points(dto.getPoints())
-                    .url(dto.getUrl())
-                    .result(dto.getResult())
-                    .attemptTime(dto.getAttemptTime())
-                    .tags(String.join(",", dto.getTags()))
-                    .build())
-                .collect(Collectors.toList());
+            long maxTryId = optimizedJdbcRepo.maxTryId();
+            optimizedJdbcRepo.createShadowTable();
+            long rows = optimizedJdbcRepo.fillShadowTable(maxTryId);
+            long buildMillis = (System.nanoTime() - start) / 1_000_000;
 
-            if (records.isEmpty()) {
-                log.warn("【DataMigration】没有可保存的数据，跳过写入");
-                return;
-            }
+            long swapMillis = optimizedJdbcRepo.swapShadowTable();
 
-            optimizedRepo.saveAll(records);
-            log.info("【DataMigration】成功保存 {} 条冗余记录", records.size());
+            // 构建期间提交的记录可能落在已扫描过的 ID 区间内（序列按块预分配，提交顺序与 ID 无关），
+            // 其增量同步只写进了旧表。RENAME 会等待仍持有旧表的事务结束，之后仍未提交的事务会写入新表，
+            // 因此切换后按 try_id 反连接补写全部缺失的行即可
+            int caughtUp = optimizedJdbcRepo.insertMissingTries();
+            // 影子表按区间复制标签，复制之后旧表上的标签刷新不会带到新表，切换后对这些题目重新刷新
+            List<Long> retaggedIds = new ArrayList<>(retaggedDuringRebuild);
+            int retagged = retaggedIds.isEmpty() ? 0 : optimizedJdbcRepo.refreshTags(retaggedIds);
+            long totalMillis = (System.nanoTime() - start) / 1_000_000;
+            rebuildTimer.record(totalMillis, TimeUnit.MILLISECONDS);
 
+            log.info("【DataMigration】冗余表重建完成：写入 {} 行，补写 {} 行，重放标签 {} 题 / {} 行，构建 {} ms，切换 {} ms，总计 {} ms",
+                    rows, caughtUp, retaggedIds.size(), retagged, buildMillis, swapMillis, totalMillis);
+            return new OptimizedRebuildReport(rows + caughtUp, buildMillis, swapMillis, totalMillis);
         } catch (Exception e) {
             log.error("【DataMigration】重建冗余表异常", e);
             throw e;
         } finally {
+            retaggedDuringRebuild.clear();
             isUpdating.set(false);
         }
     }
@@ -1,30 +1,40 @@
 package com.codingtracker.service;
 
+import com.codingtracker.crawler.CrawlPriority;
+import com.codingtracker.event.AttemptsInsertedEvent;
+import com.codingtracker.event.TriesRefreshedEvent;
 import com.codingtracker.model.ExtOjPbInfo;
 import com.codingtracker.model.ExtOjLink;
 import com.codingtracker.model.OJPlatform;
 import com.codingtracker.model.User;
 import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.repository.CrawlJobRepository;
 import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.repository.UserOJRepository;
 import com.codingtracker.repository.UserRepository;
+import com.codingtracker.repository.UserTryProblemKeyRepository;
 import com.codingtracker.repository.UserTryProblemRepository;
 import com.codingtracker.service.extoj.IExtOJAdapter;
 import com.codingtracker.init.SystemStatsLoader;
 import com.codingtracker.init.ExtOjLinkDataLoader;
-import lombok.Getter;
+import com.codingtracker.util.AttemptKeySet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.*;
 import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
 
@@ -33,188 +43,103 @@ public class ExtOjService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExtOjService.class);
 
+    /**
+     * 写入时每隔多少条 flush 并清空持久化上下文，与 hibernate.jdbc.batch_size 一致
+     */
+    private static final int WRITE_BATCH_SIZE = 50;
+
     private final UserRepository userRepository;
+    private final UserOJRepository userOJRepository;
     private final UserTryProblemRepository tryRepo;
+    private final UserTryProblemKeyRepository keyRepo;
     private final ExtOjPbInfoRepository pbInfoRepo;
     private final ExtOjLinkRepository linkRepo;
     private final SystemStatsLoader statsLoader;
     private final List<IExtOJAdapter> adapters;
     private final DataMigrationService dataMigrationService;
     private final ExtOjLinkDataLoader extOjLinkDataLoader;
+    private final CrawlJobRepository crawlJobRepository;
+    private final DailyStatsService dailyStatsService;
+    private final TagStatsService tagStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Timer diffTimer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     // 代理自身
     @Lazy
     @Autowired
     private ExtOjService selfProxy;
 
-    // 代理 DataMigrationService
-    @Lazy
-    @Autowired
-    private DataMigrationService selfProxyMigration;
-
-    @Getter
-    private volatile boolean updating = false;
-
     public ExtOjService(UserRepository userRepository,
+            UserOJRepository userOJRepository,
             UserTryProblemRepository tryRepo,
+            UserTryProblemKeyRepository keyRepo,
             ExtOjPbInfoRepository pbInfoRepo,
             ExtOjLinkRepository linkRepo,
             SystemStatsLoader statsLoader,
             List<IExtOJAdapter> adapters,
             DataMigrationService dataMigrationService,
-            ExtOjLinkDataLoader extOjLinkDataLoader) {
+            ExtOjLinkDataLoader extOjLinkDataLoader,
+            CrawlJobRepository crawlJobRepository,
+            DailyStatsService dailyStatsService,
+            TagStatsService tagStatsService,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.userOJRepository = userOJRepository;
         this.tryRepo = tryRepo;
+        this.keyRepo = keyRepo;
         this.pbInfoRepo = pbInfoRepo;
         this.linkRepo = linkRepo;
         this.statsLoader = statsLoader;
         this.adapters = adapters;
         this.dataMigrationService = dataMigrationService;
         this.extOjLinkDataLoader = extOjLinkDataLoader;
+        this.crawlJobRepository = crawlJobRepository;
+        this.dailyStatsService = dailyStatsService;
+        this.tagStatsService = tagStatsService;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.diffTimer = Timer.builder("crawler.refresh.diff")
+                .description("加载去重键并比对出新增记录的耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否有全量刷新的任务尚未完成（任意实例发起的都算）
+     */
+    public boolean isUpdating() {
+        return crawlJobRepository.hasActiveRun();
     }
 
     public synchronized boolean triggerFlushTriesDB() {
-        if (updating)
+        if (isUpdating())
             return false;
-        updating = true;
-        selfProxy.asyncFlushTriesDB(null);
+        flushTriesDB();
         return true;
     }
 
     public synchronized boolean triggerPartialFlushTriesDB(List<String> excludePlatforms) {
-        if (updating)
+        if (isUpdating())
             return false;
-        updating = true;
-        selfProxy.asyncFlushTriesDB(excludePlatforms);
+        flushTriesDBExcludingPlatforms(excludePlatforms);
         return true;
     }
 
-    @Async
-    @Transactional
-    public void asyncFlushTriesDB(List<String> excludePlatforms) {
-        try {
-            if (excludePlatforms == null || excludePlatforms.isEmpty()) {
-                flushTriesDB();
-            } else {
-                flushTriesDBExcludingPlatforms(excludePlatforms);
-            }
-            logger.info("尝试重建冗余表...");
-            selfProxyMigration.rebuildUserTryProblemOptimizedTable();
-        } catch (Exception e) {
-            logger.error("异步刷新尝试记录异常", e);
-        } finally {
-            updating = false;
-        }
-    }
-
-    private SortedSet<UserTryProblem> fetchAllUserTries(List<User> users) {
-        SortedSet<UserTryProblem> set = new TreeSet<>();
-        logger.info("开始抓取 {} 位用户的尝试记录", users.size());
-
-        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<Future<List<UserTryProblem>>> futures = new ArrayList<>();
-
-        for (IExtOJAdapter adapter : adapters) {
-            for (User user : users) {
-                futures.add(pool.submit(() -> adapter.getUserTriesOnline(user)));
-            }
-        }
-
-        pool.shutdown();
-        try {
-            if (!pool.awaitTermination(100, TimeUnit.MINUTES)) {
-                logger.warn("所有任务未在指定时间内完成");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        for (Future<List<UserTryProblem>> f : futures) {
-            try {
-                List<UserTryProblem> problems = f.get(30, TimeUnit.SECONDS);
-                if (problems != null)
-                    set.addAll(problems);
-            } catch (Exception e) {
-                logger.error("获取尝试记录失败", e);
-            }
-        }
-
-        logger.info("抓取完成，共 {} 条尝试记录", set.size());
-        return set;
-    }
-
-    private SortedSet<UserTryProblem> fetchUserTriesExcludingPlatforms(List<User> users,
-            Set<OJPlatform> excludePlatforms) {
-        SortedSet<UserTryProblem> set = new TreeSet<>();
-        logger.info("开始抓取 {} 位用户的尝试记录，跳过平台: {}", users.size(), excludePlatforms);
-
-        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<Future<List<UserTryProblem>>> futures = new ArrayList<>();
-
-        for (IExtOJAdapter adapter : adapters) {
-            // 跳过被排除的平台
-            if (excludePlatforms.contains(adapter.getOjType())) {
-                logger.info("跳过平台: {}", adapter.getOjType());
-                continue;
-            }
-
-            for (User user : users) {
-                futures.add(pool.submit(() -> {
-                    try {
-                        return adapter.getUserTriesOnline(user);
-                    } catch (Exception e) {
-                        logger.error("获取用户 {} 在平台 {} 的尝试记录失败: {}",
-                                user.getUsername(), adapter.getOjType(), e.getMessage());
-                        return new ArrayList<UserTryProblem>();
-                    }
-                }));
-            }
-        }
-
-        pool.shutdown();
-        try {
-            if (!pool.awaitTermination(100, TimeUnit.MINUTES)) {
-                logger.warn("所有任务未在指定时间内完成");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        for (Future<List<UserTryProblem>> f : futures) {
-            try {
-                List<UserTryProblem> problems = f.get(30, TimeUnit.SECONDS);
-                if (problems != null)
-                    set.addAll(problems);
-            } catch (Exception e) {
-                logger.error("获取尝试记录失败", e);
-            }
-        }
-
-        logger.info("部分抓取完成，共 {} 条尝试记录，跳过了 {} 个平台", set.size(), excludePlatforms.size());
-        return set;
-    }
-
-    @Transactional
+    /**
+     * 发起一次全量刷新：为每个 (用户, 平台) 写入一条持久化的抓取任务后立即返回，
+     * 由 {@link CrawlJobService} 的工作线程逐个认领执行，进程重启后从未完成的任务继续
+     */
     public void flushTriesDB() {
         logger.info("刷新所有用户的尝试记录...");
-        List<User> users = userRepository.findAll();
-        SortedSet<UserTryProblem> current = fetchAllUserTries(users);
-        List<UserTryProblem> existing = tryRepo.findAll();
-        Set<UserTryProblem> added = new HashSet<>(current);
-        existing.forEach(added::remove);
-        tryRepo.saveAll(added);
-        flushUserLastTryDate(added);
-        statsLoader.updateStats(
-                statsLoader.getUserCount(),
-                statsLoader.getSumProblemCount(),
-                statsLoader.getSumTryCount());
-        logger.info("刷新完成，新增 {} 条记录，最后更新时间 {}", added.size(), statsLoader.getLastUpdateTime());
+        startRun(supportedPlatforms());
     }
 
-    @Transactional
     public void flushTriesDBExcludingPlatforms(List<String> excludePlatforms) {
         logger.info("刷新用户尝试记录，跳过平台: {}", excludePlatforms);
-        List<User> users = userRepository.findAll();
 
         // 转换字符串平台名称为OJPlatform枚举
         Set<OJPlatform> excludePlatformSet = excludePlatforms.stream()
@@ -229,31 +154,196 @@ public class ExtOjService {
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
-        SortedSet<UserTryProblem> current = fetchUserTriesExcludingPlatforms(users, excludePlatformSet);
-        List<UserTryProblem> existing = tryRepo.findAll();
-        Set<UserTryProblem> added = new HashSet<>(current);
-        existing.forEach(added::remove);
-        tryRepo.saveAll(added);
-        flushUserLastTryDate(added);
+        Set<OJPlatform> platforms = supportedPlatforms();
+        platforms.removeAll(excludePlatformSet);
+        startRun(platforms);
+    }
+
+    private void startRun(Set<OJPlatform> platforms) {
+        String runId = UUID.randomUUID().toString();
+        crawlJobRepository.enqueueRun(runId, platforms, CrawlPriority.NORMAL.ordinal());
+        logger.info("全量刷新批次 {} 已入队：{} 个任务，平台: {}",
+                runId, crawlJobRepository.countActiveInRun(runId), platforms);
+    }
+
+    /**
+     * 已接入抓取的平台
+     */
+    public Set<OJPlatform> supportedPlatforms() {
+        Set<OJPlatform> platforms = EnumSet.noneOf(OJPlatform.class);
+        adapters.forEach(adapter -> platforms.add(adapter.getOjType()));
+        return platforms;
+    }
+
+    /**
+     * 执行一个抓取任务：抓取一个用户在一个平台上的记录，只写入该用户的增量。
+     * 在抓取调度器的平台线程中调用，抓取本身不再经过调度器
+     *
+     * @param userId   用户ID
+     * @param platform 平台
+     * @return 新增的记录数
+     */
+    public int runCrawlJob(Integer userId, OJPlatform platform) {
+        IExtOJAdapter adapter = adapters.stream()
+                .filter(a -> a.getOjType() == platform)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("平台未接入抓取: " + platform));
+        List<User> users = userRepository.findByIdsWithOJAccounts(List.of(userId));
+        if (users.isEmpty()) {
+            logger.warn("抓取任务的用户不存在: {}", userId);
+            return 0;
+        }
+        User user = users.get(0);
+        String tag = platform.name();
+        List<UserTryProblem> current = Timer.builder("crawler.job.fetch")
+                .description("单个抓取任务在线获取记录的耗时")
+                .tag("platform", tag)
+                .register(meterRegistry)
+                .record(() -> adapter.getUserTriesOnline(user));
+        List<UserTryProblem> added = Timer.builder("crawler.refresh.write")
+                .description("单个抓取任务写库事务的耗时")
+                .tag("platform", tag)
+                .register(meterRegistry)
+                .record(() -> selfProxy.saveRefreshResults(current));
+        Counter.builder("crawler.tries.fetched").tag("platform", tag).register(meterRegistry)
+                .increment(current.size());
+        Counter.builder("crawler.tries.inserted").tag("platform", tag).register(meterRegistry)
+                .increment(added.size());
+        logger.debug("用户 {} 在平台 {} 抓取 {} 条，新增 {} 条",
+                user.getUsername(), platform, current.size(), added.size());
+        return added.size();
+    }
+
+    /**
+     * 一次刷新（单个按需任务或整批全量任务）完成后通知缓存等下游
+     *
+     * @param addedCount 新增记录数
+     */
+    public void publishRefreshed(int addedCount) {
         statsLoader.updateStats(
                 statsLoader.getUserCount(),
                 statsLoader.getSumProblemCount(),
                 statsLoader.getSumTryCount());
-        logger.info("部分刷新完成，新增 {} 条记录，跳过了 {} 个平台，最后更新时间 {}",
-                added.size(), excludePlatformSet.size(), statsLoader.getLastUpdateTime());
+        eventPublisher.publishEvent(new TriesRefreshedEvent(addedCount, LocalDateTime.now()));
+    }
+
+    /**
+     * 在一个事务中保存一个抓取任务的结果：新增记录、冗余表与日汇总、最后尝试时间、抓取水位线，
+     * 并发布 {@link AttemptsInsertedEvent}（提交后由监听方处理）。
+     * 每个任务（一个用户的一个平台）各自提交，失败只回滚该任务；抓取本身在事务外完成，
+     * 连接只在写入期间占用
+     *
+     * @param current 本次抓取到的尝试记录
+     * @return 实际新增的记录
+     */
+    @Transactional
+    public List<UserTryProblem> saveRefreshResults(Collection<UserTryProblem> current) {
+        List<UserTryProblem> added = saveNewTries(current);
+        syncOptimizedTable(added, current);
+        flushUserLastTryDate(added);
+        flushCrawlWatermarks(current);
+        if (!added.isEmpty()) {
+            eventPublisher.publishEvent(new AttemptsInsertedEvent(added.stream()
+                    .map(t -> new AttemptsInsertedEvent.Attempt(t.getUser().getId(), t.getExtOjPbInfo().getId(),
+                            t.getResult(), t.getAttemptTime()))
+                    .toList()));
+        }
+        return added;
+    }
+
+    /**
+     * 按用户逐个比对并保存新增的尝试记录。
+     * 每个用户只加载其本批最早记录时间之后已入库的去重键，内存占用与全表大小无关；
+     * 新记录按批写入并随即清空持久化上下文，首次全量抓取的大批记录也不会在一级缓存中堆积。
+     *
+     * @param fetched 本次抓取到的尝试记录
+     * @return 实际新增的记录
+     */
+    @Transactional
+    public List<UserTryProblem> saveNewTries(Collection<UserTryProblem> fetched) {
+        Map<Integer, List<UserTryProblem>> byUser = fetched.stream()
+                .collect(Collectors.groupingBy(t -> t.getUser().getId()));
+
+        List<UserTryProblem> added = new ArrayList<>();
+        byUser.forEach((userId, tries) -> {
+            LocalDateTime earliest = tries.stream()
+                    .map(UserTryProblem::getAttemptTime)
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow();
+            List<UserTryProblem> fresh = diffTimer.record(() -> {
+                // 新记录也加入集合，同一批次内的重复记录只保留第一条
+                AttemptKeySet seen = keyRepo.findKeysSince(userId, earliest);
+                List<UserTryProblem> result = new ArrayList<>();
+                for (UserTryProblem t : tries) {
+                    if (seen.add(t)) {
+                        result.add(t);
+                    }
+                }
+                return result;
+            });
+            for (int i = 0; i < fresh.size(); i += WRITE_BATCH_SIZE) {
+                tryRepo.saveAll(fresh.subList(i, Math.min(i + WRITE_BATCH_SIZE, fresh.size())));
+                entityManager.flush();
+                entityManager.clear();
+            }
+            added.addAll(fresh);
+        });
+        return added;
+    }
+
+    /**
+     * 将新增记录和本次涉及题目的标签变化增量同步到冗余表、日汇总表和标签汇总表
+     */
+    private void syncOptimizedTable(List<UserTryProblem> added, Collection<UserTryProblem> fetched) {
+        // 冗余行由 INSERT ... SELECT 生成，新增记录须先写入数据库（saveNewTries 已按批 flush）
+        List<Long> newTryIds = added.stream().map(UserTryProblem::getId).toList();
+        Set<Long> problemIds = fetched.stream()
+                .map(t -> t.getExtOjPbInfo().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        dataMigrationService.applyIncrementalChanges(newTryIds, problemIds);
+        dailyStatsService.applyNewTries(added);
+        tagStatsService.applyNewTries(added);
     }
 
     @Transactional
-    public void flushUserLastTryDate(Set<UserTryProblem> tries) {
-        Map<User, LocalDateTime> lastTimes = tries.stream().collect(Collectors.toMap(
-                UserTryProblem::getUser,
+    public void flushUserLastTryDate(Collection<UserTryProblem> tries) {
+        // 抓取期间用户实体已脱离会话，只按ID推进该列，避免用旧快照覆盖其他字段
+        Map<Integer, LocalDateTime> lastTimes = tries.stream().collect(Collectors.toMap(
+                t -> t.getUser().getId(),
                 UserTryProblem::getAttemptTime,
                 BinaryOperator.maxBy(Comparator.naturalOrder())));
-        lastTimes.forEach(User::setLastTryDate);
-        userRepository.saveAll(lastTimes.keySet());
+        lastTimes.forEach(userRepository::advanceLastTryDate);
         logger.info("已更新 {} 位用户的最后尝试时间", lastTimes.size());
     }
 
+    /**
+     * 按本次抓取到的记录推进各 OJ 账号的增量水位线，须在新记录保存之后调用。
+     * 爬虫在任一 handle 或分页未拉取完整时会直接抛出异常，走不到这里，
+     * 因此到达此处的记录已覆盖账号下每个 handle 从旧水位线（或历史起点）到最新的全部提交。
+     */
+    @Transactional
+    public void flushCrawlWatermarks(Collection<UserTryProblem> tries) {
+        Map<Integer, LocalDateTime> watermarks = tries.stream()
+                .filter(t -> t.getUserOj() != null && t.getUserOj().getId() != null)
+                .collect(Collectors.toMap(
+                        t -> t.getUserOj().getId(),
+                        UserTryProblem::getAttemptTime,
+                        BinaryOperator.maxBy(Comparator.naturalOrder())));
+        LocalDateTime now = LocalDateTime.now();
+        watermarks.forEach((id, time) -> userOJRepository.advanceCrawlWatermark(id, time, now));
+        logger.info("已推进 {} 个OJ账号的抓取水位线", watermarks.size());
+    }
+
+    /**
+     * 清空所有账号的水位线，下一次刷新将全量抓取
+     */
+    @Transactional
+    public void resetCrawlWatermarks() {
+        int count = userOJRepository.resetCrawlWatermarks();
+        logger.info("已清空 {} 个OJ账号的抓取水位线", count);
+    }
+
     public LocalDateTime getLastUpdateTime() {
         return statsLoader.getLastUpdateTime();
     }
@@ -312,9 +402,10 @@ public class ExtOjService {
                 throw new RuntimeException("平台配置不存在: " + platform);
             }
 
-            // 更新token
+            // 更新token，并替换内存中的配置快照
             link.setAuthToken(token);
             linkRepo.save(link);
+            extOjLinkDataLoader.reload();
 
             // 保存配置到文件
             try {
@@ -0,0 +1,195 @@
+package com.codingtracker.service;
+
+import com.codingtracker.event.AttemptsInsertedEvent;
+import com.codingtracker.repository.UserPlatformDailyStatsRepository;
+import com.codingtracker.repository.UserPlatformDailyStatsRepository.DayCounts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 活跃度热力图缓存：每个（用户, 年份）一份 short[366] 的每日尝试数与 AC 数，
+ * 首次访问时从日汇总表 user_platform_daily_stats 加载；收到 {@link AttemptsInsertedEvent} 后
+ * 只重新读取新记录所在日期的汇总行并覆盖对应的天（幂等，重复处理不会重复计数）。
+ * 其他节点抓取的记录不会触发本节点的事件，条目在 TTL 到期后重新加载。
+ * 条目数有上限，超出时淘汰最久未使用的条目。每份热力图是不可变的快照，附带由内容计算的 ETag，供客户端条件请求。
+ */
+@Component
+public class HeatmapCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeatmapCache.class);
+
+    /**
+     * 一年的热力图快照，数组下标为 dayOfYear - 1
+     */
+    public record Heatmap(int year, short[] tries, short[] acs, long totalTries, long totalAc, int activeDays,
+                          String etag) {
+    }
+
+    private record Key(int userId, int year) {
+    }
+
+    private record Entry(Heatmap heatmap, long expiresAtMillis) {
+    }
+
+    private final UserPlatformDailyStatsRepository statsRepo;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<Key, Entry> entries;
+    // 每个用户收到增量的次数：加载期间若有增量到达，加载结果可能缺少该增量，不放入缓存；
+    // 同时作为该用户增量处理的锁，保证按提交顺序读取并覆盖汇总行
+    private final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public HeatmapCache(UserPlatformDailyStatsRepository statsRepo,
+            @Value("${heatmap.cache.max-entries:4096}") int maxEntries,
+            @Value("${heatmap.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.statsRepo = statsRepo;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > HeatmapCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取用户某一年的热力图
+     */
+    public Heatmap get(int userId, int year) {
+        Key key = new Key(userId, year);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry cached = entries.get(key);
+            if (cached != null && cached.expiresAtMillis() > now) {
+                return cached.heatmap();
+            }
+        }
+        long version = version(userId).get();
+        Heatmap loaded = load(userId, year);
+        synchronized (entries) {
+            if (version(userId).get() == version) {
+                entries.put(key, new Entry(loaded, now + ttlMillis));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 清空全部条目（日汇总表重建后使用）
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 新记录提交后，为已缓存的热力图重新读取受影响日期的汇总行并覆盖这些天；未缓存的在下次访问时加载。
+     * 覆盖而不是累加：提交与本监听器之间被加载的条目已包含新记录，重复处理也不会重复计数
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAttemptsInserted(AttemptsInsertedEvent event) {
+        Map<Key, TreeSet<LocalDate>> daysByKey = new HashMap<>();
+        for (AttemptsInsertedEvent.Attempt a : event.attempts()) {
+            daysByKey.computeIfAbsent(new Key(a.userId(), a.attemptTime().getYear()), k -> new TreeSet<>())
+                    .add(a.attemptTime().toLocalDate());
+        }
+        daysByKey.forEach((key, days) -> {
+            AtomicLong version = version(key.userId());
+            synchronized (version) {
+                // 先推进版本，之后开始的加载必然读到已提交的新记录
+                version.incrementAndGet();
+                synchronized (entries) {
+                    if (!entries.containsKey(key)) {
+                        return;
+                    }
+                }
+                List<DayCounts> fresh = statsRepo.sumByDay(key.userId(), days.first(), days.last().plusDays(1));
+                synchronized (entries) {
+                    Entry old = entries.get(key);
+                    if (old != null) {
+                        entries.put(key, new Entry(
+                                overwriteDays(key, old.heatmap(), days.first(), days.last(), fresh),
+                                old.expiresAtMillis()));
+                    }
+                }
+            }
+        });
+        logger.debug("热力图缓存已按 {} 条新记录更新", event.attempts().size());
+    }
+
+    private Heatmap load(int userId, int year) {
+        short[] tries = new short[366];
+        short[] acs = new short[366];
+        long totalTries = 0;
+        long totalAc = 0;
+        int activeDays = 0;
+        LocalDate first = LocalDate.of(year, 1, 1);
+        for (DayCounts day : statsRepo.sumByDay(userId, first, first.plusYears(1))) {
+            int i = day.day().getDayOfYear() - 1;
+            tries[i] = saturate(day.tryCount());
+            acs[i] = saturate(day.acCount());
+            totalTries += day.tryCount();
+            totalAc += day.acCount();
+            if (day.tryCount() > 0) {
+                activeDays++;
+            }
+        }
+        return snapshot(new Key(userId, year), tries, acs, totalTries, totalAc, activeDays);
+    }
+
+    // 用 [from, to] 内的最新汇总行覆盖旧快照中的这些天，没有汇总行的日期视为 0
+    private static Heatmap overwriteDays(Key key, Heatmap old, LocalDate from, LocalDate to, List<DayCounts> fresh) {
+        short[] tries = old.tries().clone();
+        short[] acs = old.acs().clone();
+        long totalTries = old.totalTries();
+        long totalAc = old.totalAc();
+        int activeDays = old.activeDays();
+        for (int i = from.getDayOfYear() - 1; i < to.getDayOfYear(); i++) {
+            totalTries -= tries[i];
+            totalAc -= acs[i];
+            if (tries[i] > 0) {
+                activeDays--;
+            }
+            tries[i] = 0;
+            acs[i] = 0;
+        }
+        for (DayCounts day : fresh) {
+            int i = day.day().getDayOfYear() - 1;
+            tries[i] = saturate(day.tryCount());
+            acs[i] = saturate(day.acCount());
+            totalTries += day.tryCount();
+            totalAc += day.acCount();
+            if (day.tryCount() > 0) {
+                activeDays++;
+            }
+        }
+        return snapshot(key, tries, acs, totalTries, totalAc, activeDays);
+    }
+
+    private static Heatmap snapshot(Key key, short[] tries, short[] acs, long totalTries, long totalAc,
+            int activeDays) {
+        long hash = 31L * Arrays.hashCode(tries) + Arrays.hashCode(acs);
+        hash = 31 * hash + totalTries;
+        hash = 31 * hash + totalAc;
+        String etag = "\"" + key.userId() + "-" + key.year() + "-" + Long.toHexString(hash) + "\"";
+        return new Heatmap(key.year(), tries, acs, totalTries, totalAc, activeDays, etag);
+    }
+
+    private static short saturate(long count) {
+        return (short) Math.min(count, Short.MAX_VALUE);
+    }
+
+    private AtomicLong version(int userId) {
+        return versions.computeIfAbsent(userId, k -> new AtomicLong());
+    }
+}
@@ -0,0 +1,166 @@
+package com.codingtracker.service;
+
+import com.codingtracker.dto.UserStatsDTO;
+import com.codingtracker.event.TriesRefreshedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * 排行榜缓存：位于 UserTryProblemService 的 try/AC 统计之前。
+ * 按（指标, 归一化区间）缓存结果，条目数和存活时间有上限；
+ * 收到 {@link TriesRefreshedEvent} 后清空并预热最近使用的区间，两次刷新之间的请求不再访问数据库。
+ */
+@Component
+public class LeaderboardCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardCache.class);
+
+    public enum Metric { TRY, AC }
+
+    /**
+     * 区间类别，仅用于日志和监控
+     */
+    public enum RangeKind { TODAY, WEEK, MONTH, CUSTOM }
+
+    /**
+     * 缓存键：时间截断到秒，同一区间的轮询请求命中同一条目
+     */
+    public record RangeKey(Metric metric, LocalDateTime start, LocalDateTime end) {
+
+        static RangeKey of(Metric metric, LocalDateTime start, LocalDateTime end) {
+            return new RangeKey(metric, start.truncatedTo(ChronoUnit.SECONDS), end.truncatedTo(ChronoUnit.SECONDS));
+        }
+
+        public RangeKind kind() {
+            LocalDate today = LocalDate.now();
+            if (!end.isBefore(today.atTime(23, 59, 59))) {
+                if (start.equals(today.atStartOfDay())) {
+                    return RangeKind.TODAY;
+                }
+                if (start.equals(today.with(DayOfWeek.MONDAY).atStartOfDay())) {
+                    return RangeKind.WEEK;
+                }
+                if (start.equals(today.withDayOfMonth(1).atStartOfDay())) {
+                    return RangeKind.MONTH;
+                }
+            }
+            return RangeKind.CUSTOM;
+        }
+    }
+
+    private record Entry(CompletableFuture<List<UserStatsDTO>> value, long expiresAtMillis) {
+    }
+
+    private final UserTryProblemService userTryProblemService;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final int warmEntries;
+    private final Map<RangeKey, Entry> entries;
+
+    public LeaderboardCache(UserTryProblemService userTryProblemService,
+            @Value("${leaderboard.cache.max-entries:64}") int maxEntries,
+            @Value("${leaderboard.cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${leaderboard.cache.warm-entries:8}") int warmEntries) {
+        this.userTryProblemService = userTryProblemService;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.warmEntries = warmEntries;
+        // 访问顺序的 LinkedHashMap，超出上限时淘汰最久未使用的条目
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RangeKey, Entry> eldest) {
+                return size() > LeaderboardCache.this.maxEntries;
+            }
+        };
+    }
+
+    public List<UserStatsDTO> getTryCounts(LocalDateTime start, LocalDateTime end) {
+        RangeKey key = RangeKey.of(Metric.TRY, start, end);
+        return get(key, () -> userTryProblemService.getTryCounts(key.start(), key.end()));
+    }
+
+    public List<UserStatsDTO> getAcCounts(LocalDateTime start, LocalDateTime end) {
+        RangeKey key = RangeKey.of(Metric.AC, start, end);
+        return get(key, () -> userTryProblemService.getAcCounts(key.start(), key.end()));
+    }
+
+    /**
+     * 清空全部条目
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 刷新提交后清空缓存，并按最近使用顺序重新计算若干热点区间
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTriesRefreshed(TriesRefreshedEvent event) {
+        List<RangeKey> hot;
+        synchronized (entries) {
+            hot = new ArrayList<>(entries.keySet());
+            entries.clear();
+        }
+        Collections.reverse(hot);
+        hot = hot.subList(0, Math.min(warmEntries, hot.size()));
+        for (RangeKey key : hot) {
+            try {
+                if (key.metric() == Metric.TRY) {
+                    getTryCounts(key.start(), key.end());
+                } else {
+                    getAcCounts(key.start(), key.end());
+                }
+            } catch (Exception e) {
+                logger.warn("预热排行榜缓存 {} 失败: {}", key, e.getMessage());
+            }
+        }
+        logger.info("尝试记录已刷新（新增 {} 条），排行榜缓存已清空并预热 {} 个区间", event.addedCount(), hot.size());
+    }
+
+    private List<UserStatsDTO> get(RangeKey key, Supplier<List<UserStatsDTO>> loader) {
+        Entry entry;
+        boolean owner = false;
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.expiresAtMillis() <= now || entry.value().isCompletedExceptionally()) {
+                // 同一区间并发未命中时只由一个请求查询数据库，其余请求等待同一结果
+                entry = new Entry(new CompletableFuture<>(), now + ttlMillis);
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        CompletableFuture<List<UserStatsDTO>> future = entry.value();
+        if (owner) {
+            try {
+                future.complete(Collections.unmodifiableList(loader.get()));
+                logger.debug("排行榜缓存未命中，已加载 {}（{}）", key, key.kind());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.codingtracker.service;
+
+import com.codingtracker.crawler.ProblemIdCache;
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.Tag;
+import com.codingtracker.repository.ProblemTagRepository;
+import com.codingtracker.repository.ProblemTagRepository.ProblemRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 各爬虫共用的题目/标签写入入口：批量 upsert 题目、标签及关联，返回 pid → 题目ID。
+ * ID 查询先走 {@link ProblemIdCache}，写入结果写穿到缓存。
+ * 不开启事务，每批语句各自提交、尽快释放行锁；语句均幂等，中途失败重跑即可。
+ */
+@Slf4j
+@Service
+public class ProblemUpsertService {
+
+    private final ProblemTagRepository problemTagRepository;
+    private final ProblemIdCache problemIdCache;
+
+    public ProblemUpsertService(ProblemTagRepository problemTagRepository, ProblemIdCache problemIdCache) {
+        this.problemTagRepository = problemTagRepository;
+        this.problemIdCache = problemIdCache;
+    }
+
+    /**
+     * 批量写入题目及其标签
+     *
+     * @param ojName 平台
+     * @param rows   题目
+     * @return pid → 题目ID
+     */
+    public Map<String, Long> upsert(OJPlatform ojName, Collection<ProblemRow> rows) {
+        Map<String, Long> ids = new HashMap<>();
+        // 内容与上次写入相同的题目直接取缓存的ID，不访问数据库
+        List<ProblemRow> changed = new ArrayList<>();
+        for (ProblemRow row : rows) {
+            Long id = problemIdCache.getIfUnchanged(ojName, row);
+            if (id != null) {
+                ids.put(row.pid(), id);
+            } else {
+                changed.add(row);
+            }
+        }
+        if (changed.isEmpty()) {
+            return ids;
+        }
+
+        problemTagRepository.upsertProblems(ojName, changed);
+        Map<String, Long> written = problemTagRepository.findProblemIds(ojName,
+                changed.stream().map(ProblemRow::pid).toList());
+        linkTags(changed, written);
+        // 关联写入成功后再记录内容，失败时下次会重写
+        for (ProblemRow row : changed) {
+            Long id = written.get(row.pid());
+            if (id != null) {
+                problemIdCache.putWritten(ojName, row, id);
+            }
+        }
+        ids.putAll(written);
+        return ids;
+    }
+
+    /**
+     * 查询已存在题目的ID
+     *
+     * @return pid → 题目ID，不存在的 pid 不在结果中
+     */
+    public Map<String, Long> findIds(OJPlatform ojName, Collection<String> pids) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String pid : pids) {
+            Long id = problemIdCache.getProblemId(ojName, pid);
+            if (id != null) {
+                ids.put(pid, id);
+            } else {
+                misses.add(pid);
+            }
+        }
+        if (!misses.isEmpty()) {
+            Map<String, Long> found = problemTagRepository.findProblemIds(ojName, misses);
+            found.forEach((pid, id) -> problemIdCache.putProblemId(ojName, pid, id));
+            ids.putAll(found);
+        }
+        return ids;
+    }
+
+    /**
+     * 解析一批题号：已存在的直接取ID，缺失的逐个用 fetcher 抓取详情后一次性写入
+     *
+     * @param fetcher 抓取题目详情，失败返回 null（该题不出现在结果中）
+     * @return pid → 题目ID
+     */
+    public Map<String, Long> resolve(OJPlatform ojName, Collection<String> pids, Function<String, ProblemRow> fetcher) {
+        Map<String, Long> ids = findIds(ojName, new HashSet<>(pids));
+        List<ProblemRow> missing = new ArrayList<>();
+        for (String pid : new LinkedHashSet<>(pids)) {
+            if (!ids.containsKey(pid)) {
+                ProblemRow row = fetcher.apply(pid);
+                if (row != null) {
+                    missing.add(row);
+                }
+            }
+        }
+        ids.putAll(upsert(ojName, missing));
+        return ids;
+    }
+
+    /**
+     * 只带主键的题目实体，用于构造尝试记录的外键，无需从数据库加载整行
+     */
+    public static ExtOjPbInfo reference(Long problemId) {
+        return ExtOjPbInfo.builder().id(problemId).build();
+    }
+
+    /**
+     * 把题目实体转换为写入行（标签取名称）
+     */
+    public static ProblemRow toRow(ExtOjPbInfo info) {
+        List<String> tags = info.getTags() == null
+                ? List.of()
+                : info.getTags().stream().map(Tag::getName).filter(Objects::nonNull).toList();
+        return new ProblemRow(info.getPid(), info.getName(), info.getType(), info.getPoints(), info.getUrl(), tags);
+    }
+
+    private void linkTags(Collection<ProblemRow> rows, Map<String, Long> problemIds) {
+        Set<String> tagNames = new HashSet<>();
+        rows.forEach(row -> tagNames.addAll(row.tags()));
+        if (tagNames.isEmpty()) {
+            return;
+        }
+        Map<String, Long> tagIds = new HashMap<>();
+        Set<String> missingTags = new HashSet<>();
+        for (String name : tagNames) {
+            Long id = problemIdCache.getTagId(name);
+            if (id != null) {
+                tagIds.put(name, id);
+            } else {
+                missingTags.add(name);
+            }
+        }
+        if (!missingTags.isEmpty()) {
+            problemTagRepository.insertTags(missingTags);
+            Map<String, Long> found = problemTagRepository.findTagIds(missingTags);
+            for (String name : missingTags) {
+                Long id = found.get(name);
+                if (id != null) {
+                    problemIdCache.putTagId(name, id);
+                    tagIds.put(name, id);
+                }
+            }
+        }
+
+        Map<Long, Set<Long>> problemTagsMap = new HashMap<>();
+        for (ProblemRow row : rows) {
+            Long problemId = problemIds.get(row.pid());
+            if (problemId == null) {
+                continue;
+            }
+            for (String tag : row.tags()) {
+                Long tagId = tagIds.get(tag);
+                if (tagId != null) {
+                    problemTagsMap.computeIfAbsent(problemId, k -> new HashSet<>()).add(tagId);
+                }
+            }
+        }
+        problemTagRepository.batchInsertProblemTags(problemTagsMap);
+    }
+}
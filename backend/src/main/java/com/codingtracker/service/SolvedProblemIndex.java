@@ -0,0 +1,307 @@
+package com.codingtracker.service;
+
+import com.codingtracker.event.AttemptsInsertedEvent;
+import com.codingtracker.event.TriesRefreshedEvent;
+import com.codingtracker.model.ProblemResult;
+import com.codingtracker.repository.SolvedIndexRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已解决题目的内存索引：每个用户 AC 过的题目ID集合、每个题目标签下的题目ID集合，均为 RoaringBitmap。
+ * 启动后在后台全量构建，之后由本节点的 {@link AttemptsInsertedEvent} 增量维护，
+ * 其他节点抓取的记录由 {@link #syncFromStore()} 按尝试记录 ID 的高水位定时拉取，
+ * 并集 / 交集 / 差集与标签覆盖率在内存中完成，不再对尝试记录做 GROUP BY。
+ * 位图写时复制：更新时替换为新位图，读者拿到的位图不会再被修改。
+ * 题目ID按无符号 32 位存储。
+ */
+@Component
+public class SolvedProblemIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolvedProblemIndex.class);
+
+    /**
+     * 索引规模
+     */
+    public record Stats(boolean ready, int users, long solvedPairs, int tags, long sizeInBytes) {
+    }
+
+    private final SolvedIndexRepository repository;
+    private final long syncLookbackIds;
+
+    private volatile Map<Integer, RoaringBitmap> solvedByUser = new ConcurrentHashMap<>();
+    private volatile Map<String, RoaringBitmap> problemsByTag = Map.of();
+    private volatile boolean ready;
+    // 已拉取到的最大尝试记录 ID
+    private final AtomicLong highWaterMark = new AtomicLong();
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    // 全量构建期间到达的增量，切换到新索引后重放，避免丢失
+    private final List<AttemptsInsertedEvent.Attempt> pendingDuringRebuild = new ArrayList<>();
+
+    public SolvedProblemIndex(SolvedIndexRepository repository,
+            @Value("${solved-index.sync-lookback-ids:5000}") long syncLookbackIds) {
+        this.repository = repository;
+        this.syncLookbackIds = syncLookbackIds;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 启动完成后在后台构建索引，构建期间查询接口返回“索引构建中”
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread builder = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("构建已解决题目索引失败", e);
+            }
+        }, "solved-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * 每天全量重建一次，纠正删除账号等增量事件覆盖不到的变化
+     */
+    @Scheduled(cron = "${solved-index.rebuild-cron:0 0 4 * * ?}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * 从数据库全量重建索引并原子切换
+     *
+     * @return 是否执行（已有重建在进行时返回 false）
+     */
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            long maxTryId = repository.maxTryId();
+            Map<Integer, RoaringBitmap> users = new HashMap<>();
+            repository.streamAccepted(rs -> {
+                users.computeIfAbsent(rs.getInt("user_id"), k -> new RoaringBitmap())
+                        .add(toInt(rs.getLong("problem_id")));
+            });
+            users.values().forEach(RoaringBitmap::runOptimize);
+            Map<String, RoaringBitmap> tags = loadTags();
+
+            List<AttemptsInsertedEvent.Attempt> pending;
+            synchronized (pendingDuringRebuild) {
+                solvedByUser = new ConcurrentHashMap<>(users);
+                problemsByTag = tags;
+                highWaterMark.set(maxTryId);
+                pending = new ArrayList<>(pendingDuringRebuild);
+                pendingDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+            apply(pending);
+            ready = true;
+            Stats stats = stats();
+            logger.info("已解决题目索引重建完成：{} 位用户，{} 个（用户, 题目）对，{} 个标签，约 {} KB，耗时 {} ms",
+                    stats.users(), stats.solvedPairs(), stats.tags(), stats.sizeInBytes() / 1024,
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } finally {
+            synchronized (pendingDuringRebuild) {
+                pendingDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    /**
+     * 新记录提交后把其中的 AC 加入对应用户的集合
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAttemptsInserted(AttemptsInsertedEvent event) {
+        List<AttemptsInsertedEvent.Attempt> accepted = event.attempts().stream()
+                .filter(a -> a.result() == ProblemResult.AC)
+                .toList();
+        if (accepted.isEmpty()) {
+            return;
+        }
+        synchronized (pendingDuringRebuild) {
+            if (rebuilding.get()) {
+                pendingDuringRebuild.addAll(accepted);
+            }
+        }
+        apply(accepted);
+    }
+
+    /**
+     * 定时拉取高水位之后新增的 AC 记录（包括其他节点抓取的），加入对应用户的集合。
+     * ID 由序列按块预分配，并发事务可能晚于更大的 ID 提交，因此每次从高水位往回多看 lookback 个 ID；
+     * 加入位图是幂等的，重复读取没有副作用。更早的迟到记录由每日全量重建纠正
+     */
+    @Scheduled(fixedDelayString = "${solved-index.sync-interval-ms:60000}")
+    public void syncFromStore() {
+        if (!ready || rebuilding.get()) {
+            return;
+        }
+        long since = Math.max(0, highWaterMark.get() - syncLookbackIds);
+        Map<Integer, List<Long>> byUser = new HashMap<>();
+        long[] maxSeen = {since};
+        repository.streamAcceptedAfter(since, rs -> {
+            byUser.computeIfAbsent(rs.getInt("user_id"), k -> new ArrayList<>()).add(rs.getLong("problem_id"));
+            maxSeen[0] = Math.max(maxSeen[0], rs.getLong("id"));
+        });
+        apply(byUser);
+        highWaterMark.accumulateAndGet(maxSeen[0], Math::max);
+        logger.debug("已解决题目索引增量同步：{} 位用户，高水位 {}", byUser.size(), highWaterMark.get());
+    }
+
+    /**
+     * 一轮刷新结束后重新加载题目标签（新抓取的题目可能带来新标签）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTriesRefreshed(TriesRefreshedEvent event) {
+        if (!ready || rebuilding.get()) {
+            return;
+        }
+        try {
+            problemsByTag = loadTags();
+        } catch (Exception e) {
+            logger.warn("重新加载题目标签索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 某用户已解决的题目集合（只读，不存在时为空集合）
+     */
+    public RoaringBitmap solvedBy(int userId) {
+        RoaringBitmap solved = solvedByUser.get(userId);
+        return solved == null ? new RoaringBitmap() : solved;
+    }
+
+    /**
+     * 任一用户解决过的题目
+     */
+    public RoaringBitmap union(Collection<Integer> userIds) {
+        return RoaringBitmap.or(userIds.stream().map(this::solvedBy).iterator());
+    }
+
+    /**
+     * 所有用户都解决过的题目，用户集合为空时为空集合
+     */
+    public RoaringBitmap intersection(Collection<Integer> userIds) {
+        RoaringBitmap result = null;
+        for (Integer userId : userIds) {
+            result = result == null ? solvedBy(userId).clone() : RoaringBitmap.and(result, solvedBy(userId));
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? new RoaringBitmap() : result;
+    }
+
+    /**
+     * 用户解决过、而其他用户都没解决过的题目
+     */
+    public RoaringBitmap difference(int userId, Collection<Integer> others) {
+        return RoaringBitmap.andNot(solvedBy(userId), union(others));
+    }
+
+    /**
+     * 某标签下的题目集合（只读，不存在时为空集合）
+     */
+    public RoaringBitmap problemsWithTag(String tag) {
+        RoaringBitmap problems = problemsByTag.get(tag);
+        return problems == null ? new RoaringBitmap() : problems;
+    }
+
+    /**
+     * 全部题目标签及其题目集合（只读）
+     */
+    public Map<String, RoaringBitmap> tags() {
+        return problemsByTag;
+    }
+
+    public Stats stats() {
+        Map<Integer, RoaringBitmap> users = solvedByUser;
+        Map<String, RoaringBitmap> tags = problemsByTag;
+        long pairs = 0;
+        long bytes = 0;
+        for (RoaringBitmap b : users.values()) {
+            pairs += b.getLongCardinality();
+            bytes += b.getLongSizeInBytes();
+        }
+        for (RoaringBitmap b : tags.values()) {
+            bytes += b.getLongSizeInBytes();
+        }
+        return new Stats(ready, users.size(), pairs, tags.size(), bytes);
+    }
+
+    public static RoaringBitmap of(Collection<Long> problemIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        problemIds.forEach(id -> bitmap.add(toInt(id)));
+        return bitmap;
+    }
+
+    /**
+     * 位图中的题目ID（按升序），最多 limit 个
+     */
+    public static List<Long> toIds(RoaringBitmap bitmap, int limit) {
+        List<Long> ids = new ArrayList<>((int) Math.min(limit, bitmap.getLongCardinality()));
+        var it = bitmap.getIntIterator();
+        while (it.hasNext() && ids.size() < limit) {
+            ids.add(Integer.toUnsignedLong(it.next()));
+        }
+        return ids;
+    }
+
+    private void apply(List<AttemptsInsertedEvent.Attempt> accepted) {
+        Map<Integer, List<Long>> byUser = new HashMap<>();
+        accepted.forEach(a -> byUser.computeIfAbsent(a.userId(), k -> new ArrayList<>()).add(a.problemId()));
+        apply(byUser);
+    }
+
+    private void apply(Map<Integer, List<Long>> byUser) {
+        Map<Integer, RoaringBitmap> target = solvedByUser;
+        byUser.forEach((userId, problemIds) -> target.compute(userId, (k, old) -> {
+            RoaringBitmap copy = old == null ? new RoaringBitmap() : old.clone();
+            problemIds.forEach(id -> copy.add(toInt(id)));
+            return copy;
+        }));
+    }
+
+    private Map<String, RoaringBitmap> loadTags() {
+        Map<String, RoaringBitmap> tags = new HashMap<>();
+        repository.streamProblemTags(rs -> {
+            tags.computeIfAbsent(rs.getString("tag_name"), k -> new RoaringBitmap())
+                    .add(toInt(rs.getLong("problem_id")));
+        });
+        tags.values().forEach(RoaringBitmap::runOptimize);
+        return Map.copyOf(tags);
+    }
+
+    private static int toInt(long problemId) {
+        if ((problemId >>> 32) != 0) {
+            throw new IllegalArgumentException("题目ID超出索引范围: " + problemId);
+        }
+        return (int) problemId;
+    }
+}
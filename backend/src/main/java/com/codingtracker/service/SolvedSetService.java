@@ -0,0 +1,116 @@
+package com.codingtracker.service;
+
+import com.codingtracker.dto.SolvedSetDTO;
+import com.codingtracker.dto.TagCoverageDTO;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.SolvedIndexRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基于 {@link SolvedProblemIndex} 的“谁做了什么”查询：
+ * 用户与题目范围解析为ID后，集合运算全部在内存位图上完成
+ */
+@Service
+public class SolvedSetService {
+
+    private final SolvedProblemIndex index;
+    private final SolvedIndexRepository repository;
+
+    public SolvedSetService(SolvedProblemIndex index, SolvedIndexRepository repository) {
+        this.index = index;
+        this.repository = repository;
+    }
+
+    public boolean isReady() {
+        return index.isReady();
+    }
+
+    /**
+     * 按用户名与用户标签解析用户（两者取并集）
+     *
+     * @return 用户ID → 用户名
+     */
+    public Map<Integer, String> resolveUsers(Collection<String> usernames, Collection<String> userTags) {
+        return repository.findUsers(usernames, userTags);
+    }
+
+    /**
+     * 题目范围：某平台（可再按比赛编号或题号前缀收窄）与题目标签的交集，均未指定时为 null（不限）
+     */
+    public RoaringBitmap scope(OJPlatform platform, String contestId, String pidPrefix, String tag) {
+        RoaringBitmap scope = null;
+        if (platform != null) {
+            scope = SolvedProblemIndex.of(repository.findProblemIds(platform.name(), contestId, pidPrefix));
+        }
+        if (tag != null) {
+            RoaringBitmap tagged = index.problemsWithTag(tag);
+            scope = scope == null ? tagged : RoaringBitmap.and(scope, tagged);
+        }
+        return scope;
+    }
+
+    public SolvedSetDTO union(Collection<Integer> userIds, int limit) {
+        return describe(index.union(userIds), limit);
+    }
+
+    public SolvedSetDTO intersection(Collection<Integer> userIds, int limit) {
+        return describe(index.intersection(userIds), limit);
+    }
+
+    public SolvedSetDTO difference(int userId, Collection<Integer> others, int limit) {
+        return describe(index.difference(userId, others), limit);
+    }
+
+    /**
+     * 范围内没有任何一个用户解决过的题目
+     */
+    public SolvedSetDTO unsolved(Collection<Integer> userIds, RoaringBitmap scope, int limit) {
+        return describe(RoaringBitmap.andNot(scope, index.union(userIds)), limit);
+    }
+
+    /**
+     * 每个用户在范围内解决的题目数，范围为 null 时为解决总数
+     */
+    public Map<String, Long> counts(Map<Integer, String> users, RoaringBitmap scope) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        users.forEach((id, name) -> {
+            RoaringBitmap solved = index.solvedBy(id);
+            counts.put(name, scope == null ? solved.getLongCardinality() : RoaringBitmap.andCardinality(solved, scope));
+        });
+        return counts;
+    }
+
+    /**
+     * 各题目标签的覆盖情况，tags 为空时统计全部标签
+     */
+    public List<TagCoverageDTO> coverage(Map<Integer, String> users, Collection<String> tags) {
+        RoaringBitmap any = index.union(users.keySet());
+        Map<String, RoaringBitmap> selected = new TreeMap<>();
+        if (tags == null || tags.isEmpty()) {
+            selected.putAll(index.tags());
+        } else {
+            tags.forEach(tag -> selected.put(tag, index.problemsWithTag(tag)));
+        }
+        List<TagCoverageDTO> result = new ArrayList<>();
+        selected.forEach((tag, problems) -> {
+            Map<String, Long> perUser = new LinkedHashMap<>();
+            users.forEach((id, name) -> perUser.put(name, (long) RoaringBitmap.andCardinality(index.solvedBy(id), problems)));
+            result.add(new TagCoverageDTO(tag, problems.getLongCardinality(),
+                    RoaringBitmap.andCardinality(any, problems), perUser));
+        });
+        return result;
+    }
+
+    private SolvedSetDTO describe(RoaringBitmap set, int limit) {
+        return new SolvedSetDTO(set.getLongCardinality(),
+                limit <= 0 ? List.of() : repository.findProblems(SolvedProblemIndex.toIds(set, limit)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.codingtracker.service;
+
+import com.codingtracker.dto.TagStatDTO;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.repository.UserRepository;
+import com.codingtracker.repository.UserTagStatsRepository;
+import com.codingtracker.repository.UserTagStatsRepository.TagRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 题目标签覆盖率统计服务：维护 user_tag_stats，并按时间窗口回答单个用户或一个用户分组
+ * 在各题目标签上的尝试数、AC 数与 AC 率。查询只对汇总行求和，不再拆分冗余表的 tags 字符串
+ */
+@Service
+public class TagStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagStatsService.class);
+
+    /**
+     * 排序方式：按尝试次数倒序，或按 AC 率升序（薄弱标签在前）
+     */
+    public enum Sort { TRIES, WEAKNESS }
+
+    private final UserTagStatsRepository statsRepo;
+    private final UserRepository userRepository;
+
+    public TagStatsService(UserTagStatsRepository statsRepo, UserRepository userRepository) {
+        this.statsRepo = statsRepo;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * 按新增尝试记录重新聚合受影响的（用户, 日期）汇总行，须在新记录写入数据库之后调用
+     *
+     * @param added 新增的尝试记录
+     */
+    @Transactional
+    public void applyNewTries(Collection<UserTryProblem> added) {
+        Map<Integer, List<LocalDate>> daysByUser = added.stream().collect(Collectors.groupingBy(
+                t -> t.getUser().getId(),
+                Collectors.mapping(t -> t.getAttemptTime().toLocalDate(), Collectors.toList())));
+        daysByUser.forEach((userId, days) -> statsRepo.recompute(userId,
+                Collections.min(days), Collections.max(days)));
+        logger.info("已更新 {} 位用户的标签汇总统计", daysByUser.size());
+    }
+
+    /**
+     * 清空并全量重建标签汇总表（题目标签被修改后使用）
+     *
+     * @return 写入的汇总行数
+     */
+    @Transactional
+    public int rebuildAll() {
+        int rows = statsRepo.rebuildAll();
+        logger.info("标签汇总表重建完成，共 {} 行", rows);
+        return rows;
+    }
+
+    /**
+     * 汇总表为空时（首次部署）全量构建
+     */
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (statsRepo.isEmpty()) {
+            logger.info("标签汇总表为空，开始全量构建");
+            rebuildAll();
+        }
+    }
+
+    /**
+     * 单个用户在 [from, to] 内各题目标签的统计
+     *
+     * @return 用户不存在时为空
+     */
+    public Optional<List<TagStatDTO>> userCoverage(String username, LocalDate from, LocalDate to,
+            Sort sort, long minTries) {
+        return userRepository.findByUsername(username)
+                .map(user -> toDTOs(statsRepo.sumByTag(user.getId(), from, to), sort, minTries));
+    }
+
+    /**
+     * 一个用户分组在 [from, to] 内各题目标签的合计
+     */
+    public List<TagStatDTO> groupCoverage(String groupName, LocalDate from, LocalDate to, Sort sort, long minTries) {
+        return toDTOs(statsRepo.sumByTagForGroup(groupName, from, to, false), sort, minTries);
+    }
+
+    /**
+     * 一个用户分组中每个用户在 [from, to] 内各题目标签的统计，一条查询取回全组数据
+     *
+     * @return 用户名 → 标签统计，按用户名排序
+     */
+    public Map<String, List<TagStatDTO>> groupCoveragePerUser(String groupName, LocalDate from, LocalDate to,
+            Sort sort, long minTries) {
+        Map<Integer, List<TagRow>> byUser = statsRepo.sumByTagForGroup(groupName, from, to, true).stream()
+                .collect(Collectors.groupingBy(TagRow::userId));
+        Map<String, List<TagStatDTO>> result = new TreeMap<>();
+        if (byUser.isEmpty()) {
+            return result;
+        }
+        for (User user : userRepository.findAllById(byUser.keySet())) {
+            result.put(user.getUsername(), toDTOs(byUser.get(user.getId()), sort, minTries));
+        }
+        return result;
+    }
+
+    private static List<TagStatDTO> toDTOs(List<TagRow> rows, Sort sort, long minTries) {
+        Comparator<TagStatDTO> order = sort == Sort.WEAKNESS
+                ? Comparator.comparingDouble(TagStatDTO::getAcRate).thenComparing(TagStatDTO::getTryCount, Comparator.reverseOrder())
+                : Comparator.comparingLong(TagStatDTO::getTryCount).reversed();
+        return rows.stream()
+                .filter(r -> r.tryCount() >= minTries)
+                .map(r -> new TagStatDTO(r.tag(), r.tryCount(), r.acCount(),
+                        r.tryCount() == 0 ? 0 : (double) r.acCount() / r.tryCount()))
+                .sorted(order.thenComparing(TagStatDTO::getTag))
+                .toList();
+    }
+}
@@ -1,39 +1,135 @@
 package com.codingtracker.service;
 
+import com.codingtracker.security.TokenRevocationStore;
+import com.codingtracker.util.BloomFilter;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-// Service 默认是单例
+/**
+ * Token 吊销判定。
+ * 吊销记录按 jti 写入共享的 {@link TokenRevocationStore}，保留到 Token 本身过期为止；
+ * 另有用户级纪元，使某用户在某时刻之前签发的 Token 全部失效。
+ * 每个节点在本地维护一份镜像（布隆过滤器 + 哈希表），并定期从存储拉取其他节点的增量，
+ * 请求路径上的判定不访问数据库，绝大多数未吊销的 Token 在布隆过滤器处即可放行。
+ */
+@Slf4j
 @Service
 public class TokenBlacklistCache {
 
-    private final ConcurrentHashMap<String, LocalDateTime> blacklist = new ConcurrentHashMap<>();
+    /**
+     * 增量拉取时向前回看的时长，容忍节点间的时钟偏差
+     */
+    private static final long SYNC_LOOKBACK_SECONDS = 60;
 
-    // 添加失效token，默认失效时间（比如1小时后）
-    public void blacklistToken(String token) {
-        blacklist.put(token, LocalDateTime.now().plusHours(1));
+    private final TokenRevocationStore store;
+    private final int bloomExpected;
+
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Instant> userEpochs = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    public TokenBlacklistCache(TokenRevocationStore store,
+            @Value("${security.revocation.bloom-expected:10000}") int bloomExpected) {
+        this.store = store;
+        this.bloomExpected = bloomExpected;
+        this.bloom = new BloomFilter(bloomExpected, 0.01);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            syncFromStore();
+        } catch (Exception e) {
+            log.warn("【Token吊销】启动时加载吊销记录失败，将在下次同步重试", e);
+        }
+    }
+
+    // 吊销单个Token，直到其自然过期
+    public void blacklistToken(Claims claims) {
+        String tokenId = claims.getId();
+        if (tokenId == null) {
+            return;
+        }
+        Instant expiresAt = claims.getExpiration().toInstant();
+        store.revokeToken(tokenId, claims.getSubject(), expiresAt);
+        addLocal(tokenId, expiresAt);
+    }
+
+    // 使用户此前签发的全部Token失效（Token 签发时间精确到秒）
+    public void revokeAllForUser(String username) {
+        Instant notBefore = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        store.revokeIssuedBefore(username, notBefore);
+        userEpochs.merge(username, notBefore, TokenBlacklistCache::later);
     }
 
     // 检查token是否被失效
-    public boolean isTokenBlacklisted(String token) {
-        LocalDateTime expireTime = blacklist.get(token);
-        if (expireTime == null) {
-            return false;
+    public boolean isTokenBlacklisted(Claims claims) {
+        Instant notBefore = userEpochs.get(claims.getSubject());
+        Date issuedAt = claims.getIssuedAt();
+        if (notBefore != null && (issuedAt == null || issuedAt.toInstant().isBefore(notBefore))) {
+            return true;
         }
-        if (expireTime.isBefore(LocalDateTime.now())) {
-            blacklist.remove(token);
-            return false;
+        String tokenId = claims.getId();
+        return tokenId != null && bloom.mightContain(tokenId) && revokedTokens.containsKey(tokenId);
+    }
+
+    // 定时拉取其他节点写入的吊销记录
+    @Scheduled(fixedDelayString = "${security.revocation.sync-interval-ms:5000}")
+    public void syncFromStore() {
+        Instant started = Instant.now();
+        Instant since = lastSync.equals(Instant.EPOCH)
+                ? Instant.EPOCH
+                : lastSync.minusSeconds(SYNC_LOOKBACK_SECONDS);
+        for (TokenRevocationStore.RevokedTokenEntry entry : store.findRevokedSince(since)) {
+            addLocal(entry.tokenId(), entry.expiresAt());
         }
-        return true;
+        store.findEpochsSince(since).forEach((username, notBefore) ->
+                userEpochs.merge(username, notBefore, TokenBlacklistCache::later));
+        lastSync = started;
     }
 
-    // 定时清理过期token（可选，防止内存增长）
+    // 定时清理过期记录并重建布隆过滤器（防止内存增长）
     @Scheduled(fixedDelay = 10 * 60 * 1000) // 每10分钟执行一次
     public void cleanupExpiredTokens() {
-        LocalDateTime now = LocalDateTime.now();
-        blacklist.entrySet().removeIf(entry -> entry.getValue().isBefore(now));
+        Instant now = Instant.now();
+        int purged = store.purgeExpired(now);
+        revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        rebuildBloom();
+        if (purged > 0) {
+            log.info("【Token吊销】清理过期吊销记录 {} 条，当前 {} 条", purged, revokedTokens.size());
+        }
+    }
+
+    private void addLocal(String tokenId, Instant expiresAt) {
+        // 先写哈希表再写过滤器；重建与添加互斥，避免新条目落在被替换掉的旧过滤器里
+        synchronized (this) {
+            if (revokedTokens.put(tokenId, expiresAt) == null) {
+                bloom.add(tokenId);
+                if (revokedTokens.size() > bloomExpected) {
+                    rebuildBloom();
+                }
+            }
+        }
+    }
+
+    private synchronized void rebuildBloom() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(bloomExpected, revokedTokens.size() * 2), 0.01);
+        revokedTokens.keySet().forEach(rebuilt::add);
+        bloom = rebuilt;
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
     }
 }
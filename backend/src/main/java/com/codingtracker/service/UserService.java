@@ -8,6 +8,7 @@ import com.codingtracker.model.OJPlatform;
 import com.codingtracker.model.UserOJ;
 import com.codingtracker.model.UserTag;
 import com.codingtracker.repository.UserOJRepository;
+import com.codingtracker.security.UserAuthorityCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,18 +33,24 @@ public class UserService {
     private final BCryptPasswordEncoder passwordEncoder;
     private final AvatarStorageService avatarStorageService;
     private final SystemStatsLoader statsLoader; // 统计加载器
+    private final UserAuthorityCache userAuthorityCache; // 认证权限缓存
+    private final TokenBlacklistCache tokenBlacklistCache; // Token 吊销
 
     @Autowired
     public UserService(UserRepository userRepository,
             UserOJRepository userOJRepository,
             BCryptPasswordEncoder passwordEncoder,
             AvatarStorageService avatarStorageService,
-            SystemStatsLoader statsLoader) {
+            SystemStatsLoader statsLoader,
+            UserAuthorityCache userAuthorityCache,
+            TokenBlacklistCache tokenBlacklistCache) {
         this.userRepository = userRepository;
         this.userOJRepository = userOJRepository;
         this.passwordEncoder = passwordEncoder;
         this.avatarStorageService = avatarStorageService;
         this.statsLoader = statsLoader;
+        this.userAuthorityCache = userAuthorityCache;
+        this.tokenBlacklistCache = tokenBlacklistCache;
     }
 
     /**
@@ -189,6 +196,8 @@ public class UserService {
         user.setPassword(hashedPassword);
 
         userRepository.save(user);
+        // 改密后此前签发的 Token 全部失效
+        tokenBlacklistCache.revokeAllForUser(user.getUsername());
         return user;
     }
 
@@ -437,6 +446,7 @@ public class UserService {
         }
         if (user.getRoles() != null && !user.getRoles().isEmpty()) {
             existingUser.setRoles(user.getRoles());
+            userAuthorityCache.invalidateAfterCommit(existingUser.getUsername());
         }
 
         return userRepository.save(existingUser);
@@ -472,6 +482,7 @@ public class UserService {
         }
         if (user.getRoles() != null && !user.getRoles().isEmpty()) {
             existingUser.setRoles(user.getRoles());
+            userAuthorityCache.invalidateAfterCommit(existingUser.getUsername());
         }
 
         // 处理 OJ 账号更新 - 使用完全替换策略
@@ -674,10 +685,10 @@ public class UserService {
      */
     @Transactional
     public void deleteUser(Integer id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found");
-        }
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
         userRepository.deleteById(id);
+        userAuthorityCache.invalidateAfterCommit(user.getUsername());
     }
 
     /**
@@ -781,6 +792,7 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setActive(!user.isActive());
         userRepository.save(user);
+        userAuthorityCache.invalidateAfterCommit(user.getUsername());
     }
 
     public List<User> searchUsers(String keyword) {
@@ -0,0 +1,174 @@
+package com.codingtracker.service;
+
+import com.codingtracker.repository.UserTryProblemOptimizedJdbcRepository;
+import com.codingtracker.repository.UserTryProblemOptimizedJdbcRepository.ExportFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * 尝试记录导出：从冗余表逐行读取并直接写入输出流，内存占用与导出行数无关
+ */
+@Slf4j
+@Service
+public class UserTryExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private static final String[] COLUMNS = {
+            "username", "ojName", "pid", "name", "type", "points", "url", "tags", "result", "attemptTime"
+    };
+
+    private final UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo;
+    private final ObjectMapper objectMapper;
+
+    public UserTryExportService(UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo, ObjectMapper objectMapper) {
+        this.optimizedJdbcRepo = optimizedJdbcRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 按条件导出尝试记录到输出流（不关闭输出流）
+     *
+     * @return 导出的行数
+     */
+    public long export(ExportFilter filter, Format format, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long[] rows = {0};
+        try {
+            if (format == Format.NDJSON) {
+                JsonGenerator gen = objectMapper.getFactory().createGenerator(writer);
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                optimizedJdbcRepo.streamForExport(filter, rs -> {
+                    writeJson(gen, rs);
+                    rows[0]++;
+                });
+                gen.flush();
+            } else {
+                // 带 BOM，Excel 才能正确识别 UTF-8 中文
+                writer.write('\uFEFF');
+                writer.write(String.join(",", COLUMNS));
+                writer.write("\r\n");
+                optimizedJdbcRepo.streamForExport(filter, rs -> {
+                    writeCsv(writer, rs);
+                    rows[0]++;
+                });
+            }
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            // 多为客户端中途断开
+            log.warn("导出在第 {} 行中断: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        log.info("导出尝试记录 {} 行（{}），耗时 {} ms", rows[0], format, (System.nanoTime() - start) / 1_000_000);
+        return rows[0];
+    }
+
+    private static void writeJson(JsonGenerator gen, ResultSet rs) throws SQLException {
+        try {
+            gen.writeStartObject();
+            gen.writeStringField("username", rs.getString("username"));
+            gen.writeStringField("ojName", rs.getString("oj_name"));
+            gen.writeStringField("pid", rs.getString("pid"));
+            gen.writeStringField("name", rs.getString("problem_name"));
+            gen.writeStringField("type", rs.getString("problem_type"));
+            double points = rs.getDouble("points");
+            if (rs.wasNull()) {
+                gen.writeNullField("points");
+            } else {
+                gen.writeNumberField("points", points);
+            }
+            gen.writeStringField("url", rs.getString("url"));
+            gen.writeArrayFieldStart("tags");
+            String tags = rs.getString("tags");
+            if (tags != null && !tags.isBlank()) {
+                for (String tag : tags.split(",")) {
+                    gen.writeString(tag.trim());
+                }
+            }
+            gen.writeEndArray();
+            gen.writeStringField("result", rs.getString("result"));
+            gen.writeStringField("attemptTime", String.valueOf(rs.getObject("attempt_time", LocalDateTime.class)));
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsv(Writer writer, ResultSet rs) throws SQLException {
+        try {
+            writer.write(csv(rs.getString("username")));
+            writer.write(',');
+            writer.write(csv(rs.getString("oj_name")));
+            writer.write(',');
+            writer.write(csv(rs.getString("pid")));
+            writer.write(',');
+            writer.write(csv(rs.getString("problem_name")));
+            writer.write(',');
+            writer.write(csv(rs.getString("problem_type")));
+            writer.write(',');
+            double points = rs.getDouble("points");
+            if (!rs.wasNull()) {
+                writer.write(Double.toString(points));
+            }
+            writer.write(',');
+            writer.write(csv(rs.getString("url")));
+            writer.write(',');
+            writer.write(csv(rs.getString("tags")));
+            writer.write(',');
+            writer.write(csv(rs.getString("result")));
+            writer.write(',');
+            writer.write(String.valueOf(rs.getObject("attempt_time", LocalDateTime.class)));
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // RFC 4180：含逗号、引号或换行的字段加引号，内部引号双写
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
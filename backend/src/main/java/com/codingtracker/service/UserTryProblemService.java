@@ -1,5 +1,6 @@
 package com.codingtracker.service;
 
+import com.codingtracker.dto.CursorPage;
 import com.codingtracker.dto.UserStatsDTO;
 import com.codingtracker.dto.UserTryProblemDTO;
 import com.codingtracker.model.OJPlatform;
@@ -7,6 +8,7 @@ import com.codingtracker.model.ProblemResult;
 import com.codingtracker.model.User;
 import com.codingtracker.model.UserTryProblem;
 import com.codingtracker.repository.UserRepository;
+import com.codingtracker.repository.UserTryProblemOptimizedJdbcRepository;
 import com.codingtracker.repository.UserTryProblemRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -14,7 +16,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.Optional;
 
@@ -24,21 +28,26 @@ public class UserTryProblemService {
     private final UserTryProblemRepository repository;
     private final UserRepository userRepository; // 你需要注入UserRepository来查用户名
     private final DataMigrationService dataMigrationService;
+    private final DailyStatsService dailyStatsService;
+    private final UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo;
 
     public UserTryProblemService(UserTryProblemRepository repository, UserRepository userRepository,
-            DataMigrationService dataMigrationService) {
+            DataMigrationService dataMigrationService, DailyStatsService dailyStatsService,
+            UserTryProblemOptimizedJdbcRepository optimizedJdbcRepo) {
         this.repository = repository;
         this.userRepository = userRepository;
         this.dataMigrationService = dataMigrationService;
+        this.dailyStatsService = dailyStatsService;
+        this.optimizedJdbcRepo = optimizedJdbcRepo;
     }
 
     public List<UserStatsDTO> getTryCounts(LocalDateTime start, LocalDateTime end) {
-        List<Object[]> rawList = repository.countTryByUserAndPlatformBetween(start, end);
+        List<Object[]> rawList = dailyStatsService.countByUserAndPlatform(start, end, false);
         return convertRawListToDTOWithName(rawList);
     }
 
     public List<UserStatsDTO> getAcCounts(LocalDateTime start, LocalDateTime end) {
-        List<Object[]> rawList = repository.countAcByUserAndPlatformBetween(start, end, ProblemResult.AC);
+        List<Object[]> rawList = dailyStatsService.countByUserAndPlatform(start, end, true);
         return convertRawListToDTOWithName(rawList);
     }
 
@@ -53,11 +62,10 @@ public class UserTryProblemService {
             userIds.add(userId);
         }
 
-        // 批量查用户信息，包含标签
-        List<User> usersWithTags = userRepository.findAllWithTags();
+        // 只查询榜单上出现的用户，包含标签
         Map<Integer, User> userMap = new HashMap<>();
-        for (User user : usersWithTags) {
-            if (userIds.contains(user.getId())) {
+        if (!userIds.isEmpty()) {
+            for (User user : userRepository.findAllWithTagsByIds(new ArrayList<>(userIds))) {
                 userMap.put(user.getId(), user);
             }
         }
@@ -106,21 +114,40 @@ public class UserTryProblemService {
     }
 
     /**
-     * 获取用户的所有尝试记录（包括所有OJ账号）
+     * 按游标分页获取用户的尝试记录（按尝试时间倒序），每页代价与页的深度无关
+     *
+     * @param username  用户名
+     * @param cursor    上一页返回的 nextCursor，null 表示第一页
+     * @param size      每页条数
+     * @param withTotal 是否统计总条数（额外一次索引计数）
+     * @throws IllegalArgumentException 游标无法解析
      */
-    public Page<UserTryProblemDTO> getAllUserTryProblems(String username, int page, int size) {
-        // 先找到用户
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isEmpty()) {
-            return Page.empty();
+    public CursorPage<UserTryProblemDTO> getUserTryHistory(String username, String cursor, int size, boolean withTotal) {
+        LocalDateTime beforeTime = null;
+        long beforeId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                beforeTime = LocalDateTime.parse(parts[0]);
+                beforeId = Long.parseLong(parts[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("游标无效");
+            }
         }
 
-        User user = userOpt.get();
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "attemptTime"));
-        Page<UserTryProblem> problemPage = repository.findByUserIdIncludingOjAccountsWithProblemAndTags(
-                user.getId().longValue(), pageable);
-
-        return problemPage.map(utp -> new UserTryProblemDTO(utp, username));
+        // 多取一条用于判断是否还有下一页
+        List<UserTryProblemOptimizedJdbcRepository.Row> rows =
+                optimizedJdbcRepo.findPageByUsername(username, beforeTime, beforeId, size + 1);
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            UserTryProblemOptimizedJdbcRepository.Row last = rows.get(size - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.dto().getAttemptTime() + "|" + last.id()).getBytes(StandardCharsets.UTF_8));
+        }
+        Long total = withTotal ? optimizedJdbcRepo.countByUsername(username) : null;
+        return new CursorPage<>(rows.stream().map(UserTryProblemOptimizedJdbcRepository.Row::dto).toList(),
+                nextCursor, total);
     }
 
     /**
@@ -2,8 +2,8 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.CFCrawler;
 import com.codingtracker.crawler.HttpUtil;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,17 +24,17 @@ public class CFService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(CFService.class);
 
     private final CFCrawler cfCrawler;
-    private final ExtOjLinkRepository extOjLinkRepository;
+    private final ExtOjLinkDataLoader extOjLinkDataLoader;
     private final ExtOjPbInfoRepository extOjPbInfoRepository;
     private final HttpUtil httpUtil;
     private final ObjectMapper mapper = new ObjectMapper();
 
     public CFService(CFCrawler cfCrawler,
-            ExtOjLinkRepository extOjLinkRepository,
+            ExtOjLinkDataLoader extOjLinkDataLoader,
             ExtOjPbInfoRepository extOjPbInfoRepository,
             HttpUtil httpUtil) {
         this.cfCrawler = cfCrawler;
-        this.extOjLinkRepository = extOjLinkRepository;
+        this.extOjLinkDataLoader = extOjLinkDataLoader;
         this.extOjPbInfoRepository = extOjPbInfoRepository;
         this.httpUtil = httpUtil;
     }
@@ -42,7 +42,7 @@ public class CFService implements IExtOJAdapter {
     @Override
     public ExtOjLink getOjLink() {
         OJPlatform platform = getOjType();
-        return extOjLinkRepository.findById(platform)
+        return extOjLinkDataLoader.find(platform)
                 .orElseThrow(() -> new RuntimeException("Missing link config for " + platform));
     }
 
@@ -2,8 +2,8 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.HDUCrawler;
 import com.codingtracker.crawler.HttpUtil;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
@@ -23,16 +23,16 @@ public class HDUService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(HDUService.class);
 
     private final HDUCrawler hduCrawler;
-    private final ExtOjLinkRepository linkRepo;
+    private final ExtOjLinkDataLoader extOjLinkDataLoader;
     private final ExtOjPbInfoRepository pbInfoRepo;
     private final HttpUtil httpUtil;
 
     public HDUService(HDUCrawler hduCrawler,
-            ExtOjLinkRepository linkRepo,
+            ExtOjLinkDataLoader extOjLinkDataLoader,
             ExtOjPbInfoRepository pbInfoRepo,
             HttpUtil httpUtil) {
         this.hduCrawler = hduCrawler;
-        this.linkRepo = linkRepo;
+        this.extOjLinkDataLoader = extOjLinkDataLoader;
         this.pbInfoRepo = pbInfoRepo;
         this.httpUtil = httpUtil;
     }
@@ -44,7 +44,7 @@ public class HDUService implements IExtOJAdapter {
 
     @Override
     public ExtOjLink getOjLink() {
-        return linkRepo.findById(getOjType())
+        return extOjLinkDataLoader.find(getOjType())
                 .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
     }
 
@@ -15,7 +15,11 @@ import java.util.Map;
 public interface IExtOJAdapter {
 
     /**
-     * 在线获取某用户在本 OJ 平台的所有尝试记录（含 AC、WA 等）
+     * 在线获取某用户在本 OJ 平台的尝试记录（含 AC、WA 等）。
+     * 若账号设置了增量水位线 {@link com.codingtracker.model.UserOJ#getLastAttemptTime()}，
+     * 只需返回不早于水位线的记录；返回的记录应设置 userOj，以便推进水位线。
+     * 拉取失败或结果不完整时应直接抛出异常而不是返回空/部分列表，
+     * 以便抓取任务记为失败并按退避重试。
      *
      * @param user 用户实体
      * @return 用户尝试记录列表
@@ -2,8 +2,8 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.HttpUtil;
 import com.codingtracker.crawler.LeetCodeCrawler;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,17 +23,17 @@ public class LeetCodeService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(LeetCodeService.class);
 
     private final LeetCodeCrawler leetCodeCrawler;
-    private final ExtOjLinkRepository linkRepo;
+    private final ExtOjLinkDataLoader extOjLinkDataLoader;
     private final ExtOjPbInfoRepository pbInfoRepo;
     private final HttpUtil httpUtil;
     private final ObjectMapper mapper = new ObjectMapper();
 
     public LeetCodeService(LeetCodeCrawler leetCodeCrawler,
-            ExtOjLinkRepository linkRepo,
+            ExtOjLinkDataLoader extOjLinkDataLoader,
             ExtOjPbInfoRepository pbInfoRepo,
             HttpUtil httpUtil) {
         this.leetCodeCrawler = leetCodeCrawler;
-        this.linkRepo = linkRepo;
+        this.extOjLinkDataLoader = extOjLinkDataLoader;
         this.pbInfoRepo = pbInfoRepo;
         this.httpUtil = httpUtil;
     }
@@ -45,7 +45,7 @@ public class LeetCodeService implements IExtOJAdapter {
 
     @Override
     public ExtOjLink getOjLink() {
-        return linkRepo.findById(getOjType())
+        return extOjLinkDataLoader.find(getOjType())
                 .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
     }
 
@@ -2,8 +2,8 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.HttpUtil;
 import com.codingtracker.crawler.POJCrawler;
+import com.codingtracker.init.ExtOjLinkDataLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
@@ -22,16 +22,16 @@ public class POJService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(POJService.class);
 
     private final POJCrawler pojCrawler;
-    private final ExtOjLinkRepository linkRepo;
+    private final ExtOjLinkDataLoader extOjLinkDataLoader;
     private final ExtOjPbInfoRepository pbInfoRepo;
     private final HttpUtil httpUtil;
 
     public POJService(POJCrawler pojCrawler,
-            ExtOjLinkRepository linkRepo,
+            ExtOjLinkDataLoader extOjLinkDataLoader,
             ExtOjPbInfoRepository pbInfoRepo,
             HttpUtil httpUtil) {
         this.pojCrawler = pojCrawler;
-        this.linkRepo = linkRepo;
+        this.extOjLinkDataLoader = extOjLinkDataLoader;
         this.pbInfoRepo = pbInfoRepo;
         this.httpUtil = httpUtil;
     }
@@ -43,7 +43,7 @@ public class POJService implements IExtOJAdapter {
 
     @Override
     public ExtOjLink getOjLink() {
-        return linkRepo.findById(getOjType())
+        return extOjLinkDataLoader.find(getOjType())
                 .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
     }
 
@@ -0,0 +1,154 @@
+package com.codingtracker.util;
+
+import com.codingtracker.model.ProblemResult;
+import com.codingtracker.model.UserTryProblem;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 尝试记录去重键集合：每个键压缩为两个 long —— (用户ID, 题目ID) 与 (尝试时间秒, 结果序号)，
+ * 存放在开放寻址的 long 数组中，不创建键对象、不装箱、不触碰实体关联。
+ * 语义与唯一约束 uk_user_problem_time 一致；尝试时间按秒比较（各爬虫产生的时间均为整秒）。
+ * 非线程安全。
+ */
+public class AttemptKeySet {
+
+    private static final int RESULT_BITS = 5;
+    private static final long RESULT_MASK = (1L << RESULT_BITS) - 1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    static {
+        if (ProblemResult.values().length > (1 << RESULT_BITS)) {
+            throw new ExceptionInInitializerError("ProblemResult 取值超过 " + (1 << RESULT_BITS) + " 个，需扩大 RESULT_BITS");
+        }
+    }
+
+    // 槽位 i 占 table[2i]、table[2i+1]；全 0 表示空槽，全 0 的键单独记录
+    private long[] table;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean containsZero;
+
+    public AttemptKeySet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize 预期元素个数
+     */
+    public AttemptKeySet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max((int) (Math.max(expectedSize, 1) / LOAD_FACTOR), 8) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return true 表示该键此前不存在、已加入
+     */
+    public boolean add(int userId, long problemId, LocalDateTime attemptTime, ProblemResult result) {
+        return add(high(userId, problemId), low(attemptTime, result));
+    }
+
+    public boolean add(UserTryProblem t) {
+        return add(t.getUser().getId(), t.getExtOjPbInfo().getId(), t.getAttemptTime(), t.getResult());
+    }
+
+    public boolean contains(int userId, long problemId, LocalDateTime attemptTime, ProblemResult result) {
+        return contains(high(userId, problemId), low(attemptTime, result));
+    }
+
+    public boolean contains(UserTryProblem t) {
+        return contains(t.getUser().getId(), t.getExtOjPbInfo().getId(), t.getAttemptTime(), t.getResult());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private boolean add(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(hi, lo);
+        while (table[slot << 1] != 0 || table[(slot << 1) + 1] != 0) {
+            if (table[slot << 1] == hi && table[(slot << 1) + 1] == lo) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot << 1] = hi;
+        table[(slot << 1) + 1] = lo;
+        if (++size >= resizeAt) {
+            rehash();
+        }
+        return true;
+    }
+
+    private boolean contains(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            return containsZero;
+        }
+        int slot = slot(hi, lo);
+        while (table[slot << 1] != 0 || table[(slot << 1) + 1] != 0) {
+            if (table[slot << 1] == hi && table[(slot << 1) + 1] == lo) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void rehash() {
+        long[] old = table;
+        allocate((mask + 1) << 1);
+        for (int i = 0; i < old.length; i += 2) {
+            long hi = old[i];
+            long lo = old[i + 1];
+            if (hi == 0 && lo == 0) {
+                continue;
+            }
+            int slot = slot(hi, lo);
+            while (table[slot << 1] != 0 || table[(slot << 1) + 1] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot << 1] = hi;
+            table[(slot << 1) + 1] = lo;
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity << 1];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long hi, long lo) {
+        long h = hi * 0x9e3779b97f4a7c15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    // 题目ID由序列分配，超出 32 位时无法与用户ID共用一个 long
+    private static long high(int userId, long problemId) {
+        if ((problemId >>> 32) != 0) {
+            throw new IllegalArgumentException("题目ID超出去重键范围: " + problemId);
+        }
+        return ((long) userId << 32) | problemId;
+    }
+
+    private static long low(LocalDateTime attemptTime, ProblemResult result) {
+        return (attemptTime.toEpochSecond(ZoneOffset.UTC) << RESULT_BITS) | (result.ordinal() & RESULT_MASK);
+    }
+}
@@ -1,21 +1,31 @@
 package com.codingtracker.util;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 public class JwtUtils {
 
-    // 生成一个安全的秘钥，HS512要求至少512bit（64字节）
-    private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+    // 多实例部署时通过环境变量 JWT_SECRET 共享秘钥（至少32字节），未配置则每次启动随机生成HS512秘钥
+    private static final Key SECRET_KEY = loadSecretKey();
     private static final long EXPIRATION_TIME = 30L * 24 * 60 * 60 * 1000; // 30天，单位毫秒
+    // 解析器线程安全，构建一次后复用
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
 
     // 生成JWT Token
     public static String generateToken(String username) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
@@ -23,18 +33,26 @@ public class JwtUtils {
                 .compact();
     }
 
+    // 校验签名和有效期并解析Token
+    public static Jws<Claims> parseToken(String token) {
+        return PARSER.parseClaimsJws(token);
+    }
+
     // 从Token解析用户名
     public static String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseToken(token).getBody().getSubject();
     }
 
     // 提供秘钥给验证使用
     public static Key getSecretKey() {
         return SECRET_KEY;
     }
+
+    private static Key loadSecretKey() {
+        String secret = System.getenv("JWT_SECRET");
+        if (secret == null || secret.isBlank()) {
+            return Keys.secretKeyFor(SignatureAlgorithm.HS512);
+        }
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
 }
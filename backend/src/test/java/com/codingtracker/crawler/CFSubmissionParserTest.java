@@ -0,0 +1,118 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.crawler.CFSubmissionParser.CFSubmission;
+import com.codingtracker.crawler.CFSubmissionParser.Page;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CFSubmissionParserTest {
+
+    // user.status 按提交时间倒序返回
+    private static final String OK_RESPONSE = """
+            {"status":"OK","result":[
+              {"id":3,"contestId":1900,"creationTimeSeconds":3000,"verdict":"OK",
+               "problem":{"contestId":1900,"index":"B","name":"b","tags":["greedy","math"]},"author":{"members":[]}},
+              {"id":2,"contestId":1900,"creationTimeSeconds":2000,"verdict":"WRONG_ANSWER",
+               "problem":{"contestId":1900,"index":"A","name":"a","tags":[]}},
+              {"id":1,"contestId":123,"creationTimeSeconds":1000,"verdict":"OK",
+               "problem":{"contestId":123,"index":"C1","name":"c","tags":["dp"]}}
+            ]}
+            """;
+
+    @Test
+    void readsAllSubmissionsWithoutWatermark() throws IOException {
+        List<CFSubmission> subs = new ArrayList<>();
+        Page page = CFSubmissionParser.parse(stream(OK_RESPONSE), -1, subs::add);
+
+        assertTrue(page.ok());
+        assertNull(page.comment());
+        assertEquals(3, page.count());
+        assertFalse(page.reachedWatermark());
+
+        assertEquals(List.of("1900B", "1900A", "123C1"), subs.stream().map(CFSubmission::pid).toList());
+        assertEquals(3000, subs.get(0).creationTimeSeconds());
+        assertEquals("OK", subs.get(0).verdict());
+        assertEquals(List.of("greedy", "math"), subs.get(0).tags());
+        assertEquals("WRONG_ANSWER", subs.get(1).verdict());
+        assertTrue(subs.get(1).tags().isEmpty());
+    }
+
+    @Test
+    void stopsAtTheFirstSubmissionBeforeTheWatermark() throws IOException {
+        List<CFSubmission> subs = new ArrayList<>();
+        Page page = CFSubmissionParser.parse(stream(OK_RESPONSE), 2000, subs::add);
+
+        // 与水位线同一秒的提交仍然交出，由唯一约束去重
+        assertEquals(List.of("1900B", "1900A"), subs.stream().map(CFSubmission::pid).toList());
+        assertTrue(page.ok());
+        assertEquals(2, page.count());
+        assertTrue(page.reachedWatermark());
+    }
+
+    @Test
+    void reportsWatermarkOnFirstSubmission() throws IOException {
+        List<CFSubmission> subs = new ArrayList<>();
+        Page page = CFSubmissionParser.parse(stream(OK_RESPONSE), 5000, subs::add);
+
+        assertTrue(subs.isEmpty());
+        assertEquals(0, page.count());
+        assertTrue(page.reachedWatermark());
+    }
+
+    @Test
+    void watermarkNotReachedWhenAllSubmissionsAreNewer() throws IOException {
+        List<CFSubmission> subs = new ArrayList<>();
+        Page page = CFSubmissionParser.parse(stream(OK_RESPONSE), 500, subs::add);
+
+        assertEquals(3, page.count());
+        assertFalse(page.reachedWatermark());
+    }
+
+    @Test
+    void reportsFailedStatusWithComment() throws IOException {
+        List<CFSubmission> subs = new ArrayList<>();
+        Page page = CFSubmissionParser.parse(stream(
+                "{\"status\":\"FAILED\",\"comment\":\"handle: User with handle nobody not found\"}"), -1, subs::add);
+
+        assertFalse(page.ok());
+        assertEquals("handle: User with handle nobody not found", page.comment());
+        assertEquals(0, page.count());
+        assertFalse(page.reachedWatermark());
+        assertTrue(subs.isEmpty());
+    }
+
+    @Test
+    void pendingSubmissionHasEmptyVerdict() throws IOException {
+        List<CFSubmission> subs = new ArrayList<>();
+        CFSubmissionParser.parse(stream("""
+                {"status":"OK","result":[
+                  {"creationTimeSeconds":10,"problem":{"contestId":1,"index":"A"}}
+                ]}
+                """), -1, subs::add);
+
+        assertEquals(1, subs.size());
+        assertEquals("", subs.get(0).verdict());
+        assertEquals("1A", subs.get(0).pid());
+    }
+
+    @Test
+    void rejectsNonObjectResponse() {
+        assertThrows(IOException.class, () -> CFSubmissionParser.parse(stream("[]"), -1, s -> { }));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
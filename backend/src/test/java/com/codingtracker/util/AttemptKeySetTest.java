@@ -0,0 +1,112 @@
+package com.codingtracker.util;
+
+import com.codingtracker.model.ProblemResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttemptKeySetTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 12, 0, 0);
+
+    @Test
+    void addReportsNewAndDuplicateKeys() {
+        AttemptKeySet set = new AttemptKeySet();
+        assertTrue(set.isEmpty());
+
+        assertTrue(set.add(1, 100, T0, ProblemResult.AC));
+        assertFalse(set.add(1, 100, T0, ProblemResult.AC));
+
+        assertEquals(1, set.size());
+        assertTrue(set.contains(1, 100, T0, ProblemResult.AC));
+    }
+
+    @Test
+    void everyKeyComponentDistinguishesEntries() {
+        AttemptKeySet set = new AttemptKeySet();
+        set.add(1, 100, T0, ProblemResult.AC);
+
+        assertFalse(set.contains(2, 100, T0, ProblemResult.AC));
+        assertFalse(set.contains(1, 101, T0, ProblemResult.AC));
+        assertFalse(set.contains(1, 100, T0.plusSeconds(1), ProblemResult.AC));
+        assertFalse(set.contains(1, 100, T0, ProblemResult.WA));
+
+        // 交换用户ID与题目ID的低位，打包后的高位 long 也不能相同
+        assertTrue(set.add(100, 1, T0, ProblemResult.AC));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void comparesAttemptTimesBySecond() {
+        AttemptKeySet set = new AttemptKeySet();
+        set.add(1, 100, T0.withNano(123_000_000), ProblemResult.AC);
+
+        assertTrue(set.contains(1, 100, T0, ProblemResult.AC));
+        assertTrue(set.contains(1, 100, T0.withNano(999_999_999), ProblemResult.AC));
+        assertFalse(set.add(1, 100, T0, ProblemResult.AC));
+        assertFalse(set.contains(1, 100, T0.minusNanos(1), ProblemResult.AC));
+    }
+
+    @Test
+    void allZeroKeyIsStoredSeparatelyFromEmptySlots() {
+        LocalDateTime epoch = LocalDateTime.of(1970, 1, 1, 0, 0, 0);
+        ProblemResult first = ProblemResult.values()[0];
+        AttemptKeySet set = new AttemptKeySet();
+
+        assertFalse(set.contains(0, 0, epoch, first));
+        assertTrue(set.add(0, 0, epoch, first));
+        assertFalse(set.add(0, 0, epoch, first));
+
+        assertTrue(set.contains(0, 0, epoch, first));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void keepsAllKeysAcrossResizes() {
+        // 从最小容量开始，插入过程中多次扩容；同一用户同一题目只在时间上不同，散列高度相似
+        AttemptKeySet set = new AttemptKeySet(1);
+        int n = 10_000;
+        for (int i = 0; i < n; i++) {
+            assertTrue(set.add(7, 42, T0.plusSeconds(i), ProblemResult.WA));
+        }
+        assertEquals(n, set.size());
+        for (int i = 0; i < n; i++) {
+            assertTrue(set.contains(7, 42, T0.plusSeconds(i), ProblemResult.WA));
+            assertFalse(set.contains(7, 42, T0.plusSeconds(i), ProblemResult.AC));
+        }
+        assertFalse(set.contains(7, 42, T0.plusSeconds(n), ProblemResult.WA));
+    }
+
+    @Test
+    void agreesWithHashSetOnRandomKeys() {
+        Random random = new Random(20240501L);
+        AttemptKeySet set = new AttemptKeySet(4);
+        Set<String> expected = new HashSet<>();
+        ProblemResult[] results = ProblemResult.values();
+        for (int i = 0; i < 50_000; i++) {
+            // 取值范围较小，保证出现大量重复键
+            int userId = random.nextInt(20);
+            long problemId = random.nextInt(50);
+            LocalDateTime time = T0.plusSeconds(random.nextInt(30));
+            ProblemResult result = results[random.nextInt(results.length)];
+            boolean added = expected.add(userId + ":" + problemId + ":" + time + ":" + result);
+            assertEquals(added, set.add(userId, problemId, time, result));
+        }
+        assertEquals(expected.size(), set.size());
+    }
+
+    @Test
+    void rejectsProblemIdsBeyond32Bits() {
+        AttemptKeySet set = new AttemptKeySet();
+        assertThrows(IllegalArgumentException.class, () -> set.add(1, 1L << 32, T0, ProblemResult.AC));
+        assertTrue(set.add(1, 0xFFFF_FFFFL, T0, ProblemResult.AC));
+    }
+}
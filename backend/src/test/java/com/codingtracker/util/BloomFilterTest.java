@@ -0,0 +1,74 @@
+package com.codingtracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReportsAnAddedValueAsAbsent() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            values.add(UUID.randomUUID().toString());
+        }
+        values.forEach(filter::add);
+        for (String value : values) {
+            assertTrue(filter.mightContain(value), value);
+        }
+    }
+
+    @Test
+    void keepsNoFalseNegativesWhenOverfilled() {
+        // 远超预期容量时误判率上升，但已加入的值仍必须命中
+        BloomFilter filter = new BloomFilter(10, 0.01);
+        for (int i = 0; i < 5_000; i++) {
+            filter.add("token-" + i);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(filter.mightContain("token-" + i));
+        }
+    }
+
+    @Test
+    void keepsNoFalseNegativesUnderConcurrentAdds() {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        IntStream.range(0, 40_000).parallel().forEach(i -> filter.add("jti-" + i));
+        for (int i = 0; i < 40_000; i++) {
+            assertTrue(filter.mightContain("jti-" + i));
+        }
+    }
+
+    @Test
+    void handlesEmptyAndNonAsciiValues() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.add("");
+        filter.add("用户令牌");
+        assertTrue(filter.mightContain(""));
+        assertTrue(filter.mightContain("用户令牌"));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("in-" + i);
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("out-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 期望约 1%，留出足够余量避免偶然波动
+        assertFalse(falsePositives > probes * 0.03, "false positives: " + falsePositives);
+    }
+}